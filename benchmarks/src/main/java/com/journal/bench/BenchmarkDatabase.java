@@ -0,0 +1,110 @@
+package com.journal.bench;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.journal.dao.DBConnection;
+import com.journal.perf.DatasetGenerator;
+
+/**
+ * The embedded H2 database the DAO benchmarks read, seeded with users x entries x goals
+ * x moods (override with -p users=1000 -p entriesPerUser=50 ...).
+ *
+ * Seeding goes through DatasetGenerator with fixed counts per user and wipes the database
+ * at DB_PATH, so DB_PATH must be set explicitly to a scratch path. A database already
+ * seeded with the same sizes is reused, so only the first fork of a run pays for seeding.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDatabase {
+    static final String PASSWORD = "benchmark-password";
+
+    @Param("100")
+    public int users;
+
+    @Param("1000")
+    public int entriesPerUser;
+
+    @Param("10")
+    public int goalsPerUser;
+
+    @Param("200")
+    public int moodsPerUser;
+
+    private long[] userIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        DatasetGenerator.requireScratchDatabase();
+        try (Connection conn = DBConnection.getConnection()) {
+            if (!isSeeded(conn)) {
+                seed(conn);
+            }
+            userIds = loadUserIds(conn);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        DBConnection.shutdown();
+    }
+
+    public long randomUserId() {
+        return userIds[ThreadLocalRandom.current().nextInt(userIds.length)];
+    }
+
+    private boolean isSeeded(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS bench_seed (users INT, entries INT, goals INT, moods INT)");
+        }
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT users, entries, goals, moods FROM bench_seed")) {
+            return rs.next() && rs.getInt(1) == users && rs.getInt(2) == entriesPerUser
+                && rs.getInt(3) == goalsPerUser && rs.getInt(4) == moodsPerUser;
+        }
+    }
+
+    private void seed(Connection conn) throws SQLException {
+        DatasetGenerator generator = new DatasetGenerator();
+        generator.setUsers(users);
+        generator.setEntries("fixed:" + entriesPerUser);
+        generator.setGoals("fixed:" + goalsPerUser);
+        generator.setMoods("fixed:" + moodsPerUser);
+        generator.setPassword(PASSWORD);
+        generator.setWipe(true);
+        generator.generate();
+        try (Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM bench_seed");
+        }
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO bench_seed VALUES (?, ?, ?, ?)")) {
+            ps.setInt(1, users);
+            ps.setInt(2, entriesPerUser);
+            ps.setInt(3, goalsPerUser);
+            ps.setInt(4, moodsPerUser);
+            ps.executeUpdate();
+        }
+    }
+
+    private static long[] loadUserIds(Connection conn) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM users ORDER BY id")) {
+            while (rs.next()) {
+                ids.add(rs.getLong(1));
+            }
+        }
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,43 @@
+package com.journal.bench;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.journal.dao.DBConnection;
+
+/**
+ * Borrowing and returning a pooled connection, alone and with more threads than the
+ * pool has connections (DB_POOL_MAX_SIZE, 10 by default).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConnectionBenchmark {
+
+    @Benchmark
+    public boolean getConnection(BenchmarkDatabase db) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return conn.getAutoCommit();
+        }
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean getConnectionContended(BenchmarkDatabase db) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return conn.getAutoCommit();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.journal.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.journal.dao.EntryDAO;
+import com.journal.dao.JsonRowWriter;
+import com.journal.models.Entry;
+import com.journal.utils.JsonUtils;
+
+/**
+ * GET /api/entries for one user: loading the list with findByUserId (what the paged and
+ * model paths do), and the streaming path the full list endpoint uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EntryDaoBenchmark {
+    private final EntryDAO entryDAO = new EntryDAO();
+    private final Gson gson = JsonUtils.gson();
+
+    @Benchmark
+    public List<Entry> findByUserId(BenchmarkDatabase db) throws SQLException {
+        return entryDAO.findByUserId(db.randomUserId());
+    }
+
+    @Benchmark
+    public String findByUserIdToJson(BenchmarkDatabase db) throws SQLException {
+        return gson.toJson(entryDAO.findByUserId(db.randomUserId()));
+    }
+
+    @Benchmark
+    public long writeJsonByUserId(BenchmarkDatabase db) throws SQLException, IOException {
+        NullWriter sink = new NullWriter();
+        JsonWriter json = gson.newJsonWriter(new BufferedWriter(sink, 8192));
+        entryDAO.writeJsonByUserId(db.randomUserId(), null, new JsonRowWriter(json, gson));
+        json.flush();
+        return sink.chars;
+    }
+}
@@ -0,0 +1,87 @@
+package com.journal.bench;
+
+import java.io.StringReader;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.journal.models.Entry;
+import com.journal.utils.JsonUtils;
+
+/**
+ * Entry list serialization and request body parsing, with the shared codec
+ * (JsonUtils.gson()) next to a plain reflective Gson as the baseline. No database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+    private static final String BODY =
+        "{\"date\":\"2024-05-03\",\"mood\":\"happy\",\"content\":\"Went for a long walk after work\",\"type\":\"journal\"}";
+
+    @State(Scope.Benchmark)
+    public static class EntryList {
+        @Param({"20", "1000"})
+        public int entries;
+
+        List<Entry> list;
+
+        @Setup
+        public void setUp() {
+            list = new ArrayList<>(entries);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < entries; i++) {
+                Entry entry = new Entry((long) i, 1L, new Date(now - i * 86_400_000L), "happy",
+                    "Entry " + i + ": Today I wrote a few sentences about how things went.", new Timestamp(now - i * 86_400_000L));
+                entry.setEntryType(i % 10 == 0 ? Entry.TYPE_GRATITUDE : Entry.TYPE_JOURNAL);
+                list.add(entry);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Codecs {
+        final Gson reflective = new Gson();
+        final Gson codec = JsonUtils.gson();
+    }
+
+    @Benchmark
+    public String entriesToJsonReflective(Codecs codecs, EntryList entries) {
+        return codecs.reflective.toJson(entries.list);
+    }
+
+    @Benchmark
+    public String entriesToJsonCodec(Codecs codecs, EntryList entries) {
+        return codecs.codec.toJson(entries.list);
+    }
+
+    // A fresh TypeToken per call, as the servlets did before JsonUtils.readStringMap
+    @Benchmark
+    public Map<String, String> parseBodyReflective(Codecs codecs) {
+        return codecs.reflective.fromJson(new StringReader(BODY), new TypeToken<Map<String, String>>(){}.getType());
+    }
+
+    @Benchmark
+    public Map<String, String> parseBodyCodec() {
+        return JsonUtils.readStringMap(new StringReader(BODY));
+    }
+}
@@ -0,0 +1,45 @@
+package com.journal.bench;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.journal.utils.LatencyHistogram;
+
+/**
+ * What MetricsFilter adds to every request: recording into one shared histogram from several
+ * threads, and the quantile walk a /metrics scrape does per series. Run with -prof gc to see
+ * that recording allocates nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LatencyHistogramBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    public void record() {
+        // Request-like spread: mostly a few ms, sometimes much longer
+        histogram.record(ThreadLocalRandom.current().nextLong(200, 20_000));
+    }
+
+    @Benchmark
+    public long valueAtQuantile() {
+        return histogram.valueAtQuantile(0.99);
+    }
+}
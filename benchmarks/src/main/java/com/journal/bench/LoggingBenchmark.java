@@ -0,0 +1,76 @@
+package com.journal.bench;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.journal.utils.Log;
+
+/**
+ * What a log line costs the request thread: the old synchronized System.out.println against
+ * Log.info (queued for the writer thread) and a disabled Log.debug. Stdout is an autoflushing temp
+ * file, like the container console: one write call per line for println, one per batch for Log. At
+ * this rate the writer cannot keep up, so most Log.info lines are shed; the score is what the
+ * request thread pays either way.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private static final Log LOG = Log.get(LoggingBenchmark.class);
+
+    private PrintStream originalOut;
+    private File file;
+    private long userId = 42;
+
+    @Setup
+    public void setUp() throws IOException {
+        originalOut = System.out;
+        file = File.createTempFile("logging-bench", ".log");
+        System.setOut(new PrintStream(new FileOutputStream(file), true));
+    }
+
+    @TearDown
+    public void tearDown() {
+        PrintStream out = System.out;
+        System.setOut(originalOut);
+        out.close();
+        file.delete();
+        System.err.println("Log stats: " + Log.getStats());
+    }
+
+    @Benchmark
+    public void systemOut() {
+        System.out.println("Fetching entries for user ID: " + userId);
+    }
+
+    @Benchmark
+    public void logInfo() {
+        LOG.info("Fetching entries for user ID: {}", userId);
+    }
+
+    @Benchmark
+    public void logDebugDisabled() {
+        LOG.debug("Fetching entries for user ID: {}", userId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.journal.bench;
+
+import java.io.Writer;
+
+/** Counts and discards characters, standing in for the response writer. */
+final class NullWriter extends Writer {
+    long chars;
+
+    @Override
+    public void write(char[] buffer, int offset, int length) {
+        chars += length;
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+        chars += length;
+    }
+
+    @Override
+    public void flush() { }
+
+    @Override
+    public void close() { }
+}
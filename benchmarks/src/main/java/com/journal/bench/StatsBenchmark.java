@@ -0,0 +1,41 @@
+package com.journal.bench;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.journal.dao.UserStatsDAO;
+
+/**
+ * The queries behind GET /api/stats: reading the materialized counters (every cache miss)
+ * and recounting them from the entries and goals tables (rebuild, bulk import).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatsBenchmark {
+    private final UserStatsDAO userStatsDAO = new UserStatsDAO();
+
+    @Benchmark
+    public Map<String, Object> loadStats(BenchmarkDatabase db) throws SQLException {
+        return userStatsDAO.loadStats(db.randomUserId());
+    }
+
+    @Benchmark
+    public void rebuild(BenchmarkDatabase db) throws SQLException {
+        userStatsDAO.rebuild(db.randomUserId());
+    }
+}
@@ -0,0 +1,57 @@
+package com.journal.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.journal.utils.TokenService;
+
+/**
+ * What AUTH_MODE=token costs per request: verifying a token (done by AuthFilter on every API
+ * call) and issuing one (on login and renewal). Runs with the random fallback key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TokenServiceBenchmark {
+
+    private String token;
+    private String forged;
+
+    @Setup
+    public void setUp() {
+        token = TokenService.issue(42);
+        // Same payload, last signature character changed
+        char last = token.charAt(token.length() - 1);
+        forged = token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A');
+    }
+
+    @Benchmark
+    public TokenService.Claims verify() {
+        return TokenService.verify(token);
+    }
+
+    @Benchmark
+    public TokenService.Claims verifyForged() {
+        return TokenService.verify(forged);
+    }
+
+    @Benchmark
+    public String issue() {
+        return TokenService.issue(42);
+    }
+}
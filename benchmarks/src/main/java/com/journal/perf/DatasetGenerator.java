@@ -0,0 +1,447 @@
+package com.journal.perf;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.SplittableRandom;
+
+import com.journal.dao.DBConnection;
+import com.journal.utils.PasswordUtils;
+import com.journal.utils.Settings;
+
+/**
+ * Fills the app's database (DB_PATH, schema from DBConnection) with synthetic users, entries,
+ * goals and moods for sizing and load tests.
+ *
+ *   java -cp target/benchmarks.jar com.journal.perf.DatasetGenerator --users 1000000 --wipe
+ *
+ * Options (defaults in brackets):
+ *   --users N            users to create [10000]
+ *   --entries DIST       entries per user [geometric:40]
+ *   --goals DIST         goals per user [uniform:0-8]
+ *   --moods DIST         mood check-ins per user [geometric:60]
+ *   --gratitude RATIO    share of entries that are gratitude notes [0.1]
+ *   --completed RATIO    share of goals already completed [0.3]
+ *   --days N             how far back the oldest account goes [730]
+ *   --seed N             random seed; the same options give the same data [42]
+ *   --batch N            rows per executeBatch and commit [5000]
+ *   --password TEXT      password of every generated user [loadtest-password]
+ *   --wipe               empty the database first (required when it already has users)
+ *
+ * DIST is fixed:N, uniform:MIN-MAX or geometric:MEAN. Users are userN@loadtest.example
+ * for N = 1..users; they all share one password hash so generation does not spend hours in
+ * BCrypt. Rows go in with batched inserts and the per-user stats tables are filled once at
+ * the end with set-based SQL, like the V4 migration does.
+ *
+ * HASH_COST must be set, and LoadRunner must run with the same value: see
+ * requirePinnedHashCost.
+ */
+public class DatasetGenerator {
+    public static final String EMAIL_FORMAT = "user%d@loadtest.example";
+    public static final String DEFAULT_PASSWORD = "loadtest-password";
+
+    static final String[] MOODS = {
+        "happy", "calm", "peaceful", "excited", "neutral", "tired", "anxious", "sad", "frustrated", "angry"
+    };
+    // What GratitudeServlet stores on notes
+    private static final String GRATITUDE_MOOD = "peaceful";
+    // Roughly how often people pick each mood; skewed towards the pleasant end
+    private static final int[] MOOD_TABLE = weightedTable(new int[] {22, 18, 10, 8, 14, 10, 7, 5, 4, 2});
+
+    private static final String[] SENTENCES = {
+        "Today I went for a walk before work and it cleared my head.",
+        "Work was busy and I felt stretched a bit thin by the afternoon.",
+        "Had a long call with a friend I had not talked to in months.",
+        "Slept badly, so the morning dragged until the coffee kicked in.",
+        "Cooked dinner from scratch for the first time this week.",
+        "Spent twenty minutes meditating and noticed my shoulders relax.",
+        "A meeting went better than I expected and I spoke up more.",
+        "Felt anxious about the deadline but broke it into smaller steps.",
+    };
+    private static final String[] GRATITUDE = {
+        "Grateful for a sunny lunch break.", "Thankful for my sister's message.", "A stranger held the door.",
+        "Warm tea on a cold evening.", "My dog waiting at the door.", "Finished a book I loved.",
+    };
+    private static final String[] GOALS = {
+        "Meditate every morning", "Walk 10k steps", "Read 12 books this year", "Journal five days a week",
+        "Sleep before 11pm", "Call family every Sunday", "Cook at home more", "Learn to say no",
+    };
+
+    private static final String[] TABLES = {"user_mood_counts", "user_stats", "moods", "goals", "entries", "users"};
+
+    private int users = 10_000;
+    private Distribution entries = Distribution.parse("geometric:40");
+    private Distribution goals = Distribution.parse("uniform:0-8");
+    private Distribution moods = Distribution.parse("geometric:60");
+    private double gratitudeRatio = 0.1;
+    private double completedRatio = 0.3;
+    private int days = 730;
+    private long seed = 42;
+    private int batchSize = 5000;
+    private String password = DEFAULT_PASSWORD;
+    private boolean wipe;
+    private boolean quiet;
+
+    // Per run
+    private final ZoneId zone = ZoneId.systemDefault();
+    private SplittableRandom random;
+    private String hash;
+    private LocalDate today;
+    private long entryCount;
+    private long goalCount;
+    private long moodCount;
+
+    public static void main(String[] args) throws Exception {
+        DatasetGenerator generator = new DatasetGenerator();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--wipe")) {
+                generator.setWipe(true);
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--users": generator.setUsers(Integer.parseInt(value)); break;
+                case "--entries": generator.setEntries(value); break;
+                case "--goals": generator.setGoals(value); break;
+                case "--moods": generator.setMoods(value); break;
+                case "--gratitude": generator.setGratitudeRatio(Double.parseDouble(value)); break;
+                case "--completed": generator.setCompletedRatio(Double.parseDouble(value)); break;
+                case "--days": generator.setDays(Integer.parseInt(value)); break;
+                case "--seed": generator.setSeed(Long.parseLong(value)); break;
+                case "--batch": generator.setBatchSize(Integer.parseInt(value)); break;
+                case "--password": generator.setPassword(value); break;
+                default: usage("Unknown option " + arg);
+            }
+        }
+        requireScratchDatabase();
+        requirePinnedHashCost();
+        try {
+            generator.generate();
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+
+    /**
+     * Refuses to hash at a calibrated BCrypt cost, which varies between hosts and runs. If the
+     * app under load calibrates to another cost than the seeded hash, its first logins rehash
+     * and update users rows in the background, and a comparison of two runs measures that.
+     */
+    public static int requirePinnedHashCost() {
+        int cost = Settings.getInt("HASH_COST", 0);
+        if (cost <= 0) {
+            throw new IllegalStateException("Set HASH_COST, e.g. HASH_COST=10, when generating data and for every"
+                + " load run against it, so logins never rehash the seeded password");
+        }
+        return cost;
+    }
+
+    /** Refuses to run against the default ./data database; generating and wiping are for scratch copies. */
+    public static void requireScratchDatabase() {
+        String path = System.getenv("DB_PATH");
+        if (path == null || path.trim().isEmpty()) {
+            throw new IllegalStateException("Set DB_PATH to a scratch database, e.g. DB_PATH=/tmp/journal-load/db;"
+                + " --wipe deletes everything in it");
+        }
+    }
+
+    public void generate() throws SQLException {
+        long start = System.nanoTime();
+        if (!quiet) {
+            System.out.printf("Generating %,d users: entries %s, goals %s, moods %s, gratitude %.0f%%, seed %d%n",
+                users, entries, goals, moods, gratitudeRatio * 100, seed);
+            System.out.printf("Expect about %,.0f entries, %,.0f goals and %,.0f moods%n",
+                users * entries.mean(), users * goals.mean(), users * moods.mean());
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            prepare(conn);
+        }
+
+        random = new SplittableRandom(seed);
+        hash = PasswordUtils.hashPassword(password);
+        today = LocalDate.now(zone);
+        entryCount = 0;
+        goalCount = 0;
+        moodCount = 0;
+        int chunk = Math.max(1, Math.min(1000, batchSize));
+        long nextReport = System.nanoTime() + 5_000_000_000L;
+        for (int first = 1; first <= users; first += chunk) {
+            int last = Math.min(users, first + chunk - 1);
+            // A connection per chunk, so a long run never looks like a leak to the pool
+            try (Connection conn = DBConnection.getConnection()) {
+                conn.setAutoCommit(false);
+                try {
+                    insertChunk(conn, first, last);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            }
+            if (!quiet && System.nanoTime() - nextReport >= 0) {
+                nextReport = System.nanoTime() + 5_000_000_000L;
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long rows = last + entryCount + goalCount + moodCount;
+                System.out.printf("  %,d/%,d users, %,d entries, %,d goals, %,d moods (%,.0f rows/s)%n",
+                    last, users, entryCount, goalCount, moodCount, rows / seconds);
+            }
+        }
+        if (!quiet) {
+            System.out.printf("Inserted %,d users, %,d entries, %,d goals, %,d moods%n", users, entryCount, goalCount, moodCount);
+        }
+
+        rebuildStats();
+        if (!quiet) {
+            System.out.printf("Done in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private void prepare(Connection conn) throws SQLException {
+        if (wipe) {
+            try (Statement st = conn.createStatement()) {
+                st.execute("SET REFERENTIAL_INTEGRITY FALSE");
+                try {
+                    for (String table : TABLES) {
+                        st.execute("TRUNCATE TABLE " + table + " RESTART IDENTITY");
+                    }
+                } finally {
+                    st.execute("SET REFERENTIAL_INTEGRITY TRUE");
+                }
+            }
+            return;
+        }
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM users")) {
+            rs.next();
+            if (rs.getLong(1) > 0) {
+                throw new IllegalStateException("Database already has " + rs.getLong(1)
+                    + " users; pass --wipe to replace them");
+            }
+        }
+    }
+
+    // Users first..last and everything they own, committing every batchSize rows
+    private void insertChunk(Connection conn, int first, int last) throws SQLException {
+        int pending = 0;
+        try (PreparedStatement userPs = conn.prepareStatement(
+                 "INSERT INTO users (name, email, password_hash, created_at) VALUES (?, ?, ?, ?)",
+                 Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement entryPs = conn.prepareStatement(
+                 "INSERT INTO entries (user_id, entry_date, mood, content, entry_type, created_at) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement goalPs = conn.prepareStatement(
+                 "INSERT INTO goals (user_id, title, description, target_date, completed, created_at) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement moodPs = conn.prepareStatement(
+                 "INSERT INTO moods (user_id, mood, logged_at) VALUES (?, ?, ?)")) {
+
+            int[] joinedDaysAgo = new int[last - first + 1];
+            for (int n = first; n <= last; n++) {
+                int joined = random.nextInt(days + 1);
+                joinedDaysAgo[n - first] = joined;
+                userPs.setString(1, "Load user " + n);
+                userPs.setString(2, String.format(EMAIL_FORMAT, n));
+                userPs.setString(3, hash);
+                userPs.setTimestamp(4, timestamp(today.minusDays(joined)));
+                userPs.addBatch();
+            }
+            userPs.executeBatch();
+
+            try (ResultSet keys = userPs.getGeneratedKeys()) {
+                for (int i = 0; keys.next(); i++) {
+                    long userId = keys.getLong(1);
+                    int tenure = joinedDaysAgo[i];
+
+                    int n = entries.sample(random);
+                    for (int e = 0; e < n; e++) {
+                        LocalDate day = today.minusDays(random.nextInt(tenure + 1));
+                        boolean gratitude = random.nextDouble() < gratitudeRatio;
+                        entryPs.setLong(1, userId);
+                        entryPs.setDate(2, Date.valueOf(day));
+                        entryPs.setString(3, gratitude ? GRATITUDE_MOOD : randomMood());
+                        entryPs.setString(4, gratitude ? GRATITUDE[random.nextInt(GRATITUDE.length)] : content());
+                        entryPs.setString(5, gratitude ? "gratitude" : "journal");
+                        entryPs.setTimestamp(6, timestamp(day));
+                        entryPs.addBatch();
+                    }
+                    entryCount += n;
+                    pending += n;
+
+                    n = goals.sample(random);
+                    for (int g = 0; g < n; g++) {
+                        LocalDate created = today.minusDays(random.nextInt(tenure + 1));
+                        goalPs.setLong(1, userId);
+                        goalPs.setString(2, GOALS[random.nextInt(GOALS.length)]);
+                        goalPs.setString(3, random.nextBoolean() ? null : "Small steps, most days.");
+                        goalPs.setDate(4, random.nextInt(4) == 0 ? null : Date.valueOf(created.plusDays(7 + random.nextInt(180))));
+                        goalPs.setBoolean(5, random.nextDouble() < completedRatio);
+                        goalPs.setTimestamp(6, timestamp(created));
+                        goalPs.addBatch();
+                    }
+                    goalCount += n;
+                    pending += n;
+
+                    n = moods.sample(random);
+                    for (int m = 0; m < n; m++) {
+                        moodPs.setLong(1, userId);
+                        moodPs.setString(2, randomMood());
+                        moodPs.setTimestamp(3, timestamp(today.minusDays(random.nextInt(tenure + 1))));
+                        moodPs.addBatch();
+                    }
+                    moodCount += n;
+                    pending += n;
+
+                    if (pending >= batchSize) {
+                        entryPs.executeBatch();
+                        goalPs.executeBatch();
+                        moodPs.executeBatch();
+                        conn.commit();
+                        pending = 0;
+                    }
+                }
+            }
+            entryPs.executeBatch();
+            goalPs.executeBatch();
+            moodPs.executeBatch();
+        }
+    }
+
+    // Same counters UserStatsDAO.rebuild maintains, computed for everyone in one pass per table
+    private void rebuildStats() throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = DBConnection.getConnection(); Statement st = conn.createStatement()) {
+            st.execute("DELETE FROM user_mood_counts");
+            st.execute("DELETE FROM user_stats");
+            st.execute("""
+                INSERT INTO user_stats (user_id, entry_count, goal_count, completed_goal_count)
+                SELECT u.id,
+                  (SELECT COUNT(*) FROM entries e WHERE e.user_id = u.id AND e.entry_type = 'journal'),
+                  (SELECT COUNT(*) FROM goals g WHERE g.user_id = u.id),
+                  (SELECT COUNT(*) FROM goals g WHERE g.user_id = u.id AND g.completed = TRUE)
+                FROM users u
+                """);
+            st.execute("""
+                UPDATE user_stats s SET latest_entry_id =
+                  (SELECT e.id FROM entries e WHERE e.user_id = s.user_id AND e.entry_type = 'journal'
+                   ORDER BY e.created_at DESC, e.id DESC LIMIT 1)
+                WHERE s.entry_count > 0
+                """);
+            st.execute("""
+                UPDATE user_stats s SET latest_mood = (SELECT e.mood FROM entries e WHERE e.id = s.latest_entry_id)
+                WHERE s.latest_entry_id IS NOT NULL
+                """);
+            st.execute("""
+                INSERT INTO user_mood_counts (user_id, mood, mood_count)
+                SELECT user_id, mood, COUNT(*) FROM entries
+                WHERE mood IS NOT NULL AND entry_type = 'journal'
+                GROUP BY user_id, mood
+                """);
+        }
+        if (!quiet) {
+            System.out.printf("Rebuilt user stats in %.1f s%n", (System.nanoTime() - start) / 1e9);
+        }
+    }
+
+    private String randomMood() {
+        return MOODS[MOOD_TABLE[random.nextInt(MOOD_TABLE.length)]];
+    }
+
+    private String content() {
+        int sentences = 1 + random.nextInt(6);
+        StringBuilder sb = new StringBuilder(sentences * 64);
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private Timestamp timestamp(LocalDate day) {
+        // Waking hours, 7:00 to 23:00
+        long millis = day.atStartOfDay(zone).toInstant().toEpochMilli() + 25_200_000L + random.nextLong(57_600_000L);
+        return new Timestamp(millis);
+    }
+
+    // Index i appears weights[i] times, so a uniform pick from the table is a weighted pick
+    private static int[] weightedTable(int[] weights) {
+        int total = 0;
+        for (int w : weights) {
+            total += w;
+        }
+        int[] table = new int[total];
+        int pos = 0;
+        for (int i = 0; i < weights.length; i++) {
+            for (int w = 0; w < weights[i]; w++) {
+                table[pos++] = i;
+            }
+        }
+        return table;
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: DatasetGenerator [--users N] [--entries DIST] [--goals DIST] [--moods DIST]"
+            + " [--gratitude RATIO] [--completed RATIO] [--days N] [--seed N] [--batch N] [--password TEXT] [--wipe]");
+        System.err.println("DIST is fixed:N, uniform:MIN-MAX or geometric:MEAN");
+        System.exit(2);
+    }
+
+    public void setUsers(int users) {
+        this.users = users;
+    }
+
+    public void setEntries(String distribution) {
+        this.entries = Distribution.parse(distribution);
+    }
+
+    public void setGoals(String distribution) {
+        this.goals = Distribution.parse(distribution);
+    }
+
+    public void setMoods(String distribution) {
+        this.moods = Distribution.parse(distribution);
+    }
+
+    public void setGratitudeRatio(double gratitudeRatio) {
+        this.gratitudeRatio = gratitudeRatio;
+    }
+
+    public void setCompletedRatio(double completedRatio) {
+        this.completedRatio = completedRatio;
+    }
+
+    public void setDays(int days) {
+        this.days = days;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setPassword(String password) {
+        this.password = password;
+    }
+
+    public void setWipe(boolean wipe) {
+        this.wipe = wipe;
+    }
+
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+}
@@ -0,0 +1,96 @@
+package com.journal.perf;
+
+import java.util.SplittableRandom;
+
+/**
+ * How many rows of a kind each generated user gets, parsed from the command line:
+ *
+ *   fixed:N          every user gets N
+ *   uniform:MIN-MAX  evenly spread between MIN and MAX inclusive
+ *   geometric:MEAN   long tail around MEAN: most users write little, a few write a lot
+ */
+final class Distribution {
+
+    private enum Kind { FIXED, UNIFORM, GEOMETRIC }
+
+    private final Kind kind;
+    private final int min;
+    private final int max;
+    private final double mean;
+    private final String spec;
+
+    private Distribution(Kind kind, int min, int max, double mean, String spec) {
+        this.kind = kind;
+        this.min = min;
+        this.max = max;
+        this.mean = mean;
+        this.spec = spec;
+    }
+
+    static Distribution parse(String spec) {
+        int colon = spec.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected fixed:N, uniform:MIN-MAX or geometric:MEAN, got " + spec);
+        }
+        String kind = spec.substring(0, colon);
+        String value = spec.substring(colon + 1);
+        try {
+            switch (kind) {
+                case "fixed": {
+                    int n = nonNegative(Integer.parseInt(value), spec);
+                    return new Distribution(Kind.FIXED, n, n, n, spec);
+                }
+                case "uniform": {
+                    int dash = value.indexOf('-');
+                    int lo = nonNegative(Integer.parseInt(value.substring(0, dash)), spec);
+                    int hi = nonNegative(Integer.parseInt(value.substring(dash + 1)), spec);
+                    if (hi < lo) {
+                        throw new IllegalArgumentException("Empty range in " + spec);
+                    }
+                    return new Distribution(Kind.UNIFORM, lo, hi, (lo + hi) / 2.0, spec);
+                }
+                case "geometric": {
+                    double m = Double.parseDouble(value);
+                    if (!(m > 0)) {
+                        throw new IllegalArgumentException("Mean must be positive in " + spec);
+                    }
+                    return new Distribution(Kind.GEOMETRIC, 0, Integer.MAX_VALUE, m, spec);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown distribution " + kind + " in " + spec);
+            }
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed distribution " + spec);
+        }
+    }
+
+    int sample(SplittableRandom random) {
+        switch (kind) {
+            case FIXED:
+                return min;
+            case UNIFORM:
+                return min + random.nextInt(max - min + 1);
+            default:
+                // Inverse transform of a geometric distribution on 0, 1, 2, ... with this mean
+                double p = 1.0 / (mean + 1.0);
+                double u = 1.0 - random.nextDouble();
+                return (int) Math.min(Integer.MAX_VALUE, Math.floor(Math.log(u) / Math.log(1.0 - p)));
+        }
+    }
+
+    double mean() {
+        return mean;
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+
+    private static int nonNegative(int n, String spec) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative count in " + spec);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,575 @@
+package com.journal.perf;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.journal.dao.DBConnection;
+
+/**
+ * Replays a weighted mix of user journeys against the app and reports throughput and
+ * latency percentiles per endpoint.
+ *
+ *   DB_PATH=/tmp/journal-load/db java -cp target/benchmarks.jar com.journal.perf.LoadRunner \
+ *       --concurrency 50 --duration 60 --out load.json
+ *
+ * By default it boots ../target/MentalJournalApp.war in an embedded Tomcat on a free port,
+ * against the database at DB_PATH (fill it with DatasetGenerator first). With --url it drives
+ * a server that is already running instead.
+ *
+ * The embedded app needs HASH_COST, the same value the data was generated with; the runner
+ * stops if the seeded hash has another cost. A server given with --url must be started with
+ * that HASH_COST too.
+ *
+ * Options (defaults in brackets):
+ *   --war PATH          WAR to boot [../target/MentalJournalApp.war]
+ *   --url URL           test this server instead of booting one
+ *   --users N           generated users to log in as [counted in DB_PATH; required with --url]
+ *   --password TEXT     their password [loadtest-password]
+ *   --concurrency N     virtual users, each running one journey at a time [20]
+ *   --duration S        measured seconds [60]
+ *   --warmup S          seconds run first and not measured [10]
+ *   --think-ms N        mean pause between journeys, exponentially distributed [0]
+ *   --mix LIST          journey weights [login=5,dashboard=35,calendar=25,mood=20,entry=15]
+ *   --seed N            random seed for user and journey choice [42]
+ *   --out PATH          also write the report as JSON
+ *   --app-log PATH      where the embedded app's stdout/stderr go [load-app.log]
+ *   --threads MODE      embedded connector: platform (worker pool) or virtual (Java 21) [platform]
+ *   --max-threads N     worker pool size in platform mode [Tomcat's 200]
+ *
+ * Journeys mirror what the pages fetch: login posts credentials; dashboard loads stats,
+ * the five latest entries and goals; calendar loads a month and then one day's entries;
+ * mood posts a check-in; entry writes a journal entry. Virtual users keep their session
+ * cookie and send If-None-Match for URLs they have an ETag for, like a browser does.
+ */
+public class LoadRunner {
+
+    private enum Journey { LOGIN, DASHBOARD, CALENDAR, MOOD, ENTRY }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private String war = "../target/MentalJournalApp.war";
+    private String url;
+    private int users;
+    private String password = DatasetGenerator.DEFAULT_PASSWORD;
+    private int concurrency = 20;
+    private int durationSeconds = 60;
+    private int warmupSeconds = 10;
+    private int thinkMs;
+    private final Map<Journey, Integer> mix = new LinkedHashMap<>();
+    private long seed = 42;
+    private String out;
+    private String appLog = "load-app.log";
+    private boolean virtualThreads;
+    private int maxThreads;
+
+    private HttpClient client;
+    private long measureFrom;
+    private long measureUntil;
+    private final LongAdder completed = new LongAdder();
+
+    public static void main(String[] args) throws Exception {
+        LoadRunner runner = new LoadRunner();
+        runner.parseMix("login=5,dashboard=35,calendar=25,mood=20,entry=15");
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                usage("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--war": runner.war = value; break;
+                case "--url": runner.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value; break;
+                case "--users": runner.users = Integer.parseInt(value); break;
+                case "--password": runner.password = value; break;
+                case "--concurrency": runner.concurrency = Integer.parseInt(value); break;
+                case "--duration": runner.durationSeconds = Integer.parseInt(value); break;
+                case "--warmup": runner.warmupSeconds = Integer.parseInt(value); break;
+                case "--think-ms": runner.thinkMs = Integer.parseInt(value); break;
+                case "--mix": runner.parseMix(value); break;
+                case "--seed": runner.seed = Long.parseLong(value); break;
+                case "--out": runner.out = value; break;
+                case "--app-log": runner.appLog = value; break;
+                case "--threads": runner.virtualThreads = parseThreads(value); break;
+                case "--max-threads": runner.maxThreads = Integer.parseInt(value); break;
+                default: usage("Unknown option " + args[i]);
+            }
+        }
+        runner.run();
+    }
+
+    private void run() throws Exception {
+        Tomcat tomcat = null;
+        PrintStream console = System.out;
+        PrintStream appOutput = null;
+        try {
+            if (url == null) {
+                DatasetGenerator.requireScratchDatabase();
+                // The app logs every request to stdout; keep that out of the report
+                appOutput = new PrintStream(new FileOutputStream(appLog, true), true, StandardCharsets.UTF_8);
+                System.setOut(appOutput);
+                System.setErr(appOutput);
+                int generated = inspectDatabase(DatasetGenerator.requirePinnedHashCost());
+                if (users <= 0) {
+                    users = generated;
+                }
+                tomcat = boot(console);
+                url = "http://localhost:" + tomcat.getConnector().getLocalPort();
+            } else if (users <= 0) {
+                usage("--users is required with --url");
+            }
+            if (users <= 0) {
+                throw new IllegalStateException("No generated users in DB_PATH; run DatasetGenerator first");
+            }
+            Report report = drive(console);
+            report.print(console);
+            if (out != null) {
+                try (Writer writer = Files.newBufferedWriter(Path.of(out))) {
+                    Gson gson = new GsonBuilder().setPrettyPrinting().create();
+                    gson.toJson(report.toJson(), writer);
+                }
+                console.println("Wrote " + out);
+            }
+        } finally {
+            if (tomcat != null) {
+                tomcat.stop();
+                tomcat.destroy();
+            }
+            if (appOutput != null) {
+                System.setOut(console);
+                System.setErr(console);
+                appOutput.close();
+            }
+        }
+    }
+
+    /**
+     * Counts the generated users and checks that their password hash has the cost the app will
+     * use; otherwise the app would rehash every user it logs in as, and the run would measure that.
+     */
+    private static int inspectDatabase(int cost) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            try (PreparedStatement ps = conn.prepareStatement("SELECT password_hash FROM users WHERE email = ?")) {
+                ps.setString(1, String.format(DatasetGenerator.EMAIL_FORMAT, 1));
+                try (ResultSet rs = ps.executeQuery()) {
+                    // $2a$10$...: the cost is the two digits after the version
+                    String hash = rs.next() ? rs.getString(1) : null;
+                    int seeded = hash != null && hash.length() > 6 ? Integer.parseInt(hash.substring(4, 6)) : cost;
+                    if (seeded != cost) {
+                        throw new IllegalStateException("Users in DB_PATH were hashed at cost " + seeded + " but HASH_COST="
+                            + cost + "; run with HASH_COST=" + seeded + " or regenerate the data");
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("SELECT COUNT(*) FROM users WHERE email LIKE ?")) {
+                ps.setString(1, String.format(DatasetGenerator.EMAIL_FORMAT, 0).replace("0", "%"));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            }
+        } finally {
+            // The web app opens the database itself in its own class loader; if this copy
+            // stayed open, AUTO_SERVER would route every app query to it over TCP
+            DBConnection.shutdown();
+        }
+    }
+
+    private Tomcat boot(PrintStream console) throws IOException, LifecycleException {
+        File warFile = new File(war).getCanonicalFile();
+        if (!warFile.isFile()) {
+            throw new IllegalStateException(warFile + " not found; build it with mvn -B package in the project root");
+        }
+        Logger.getLogger("org.apache").setLevel(Level.WARNING);
+        Path base = Files.createTempDirectory("journal-load-tomcat");
+        Tomcat tomcat = new Tomcat();
+        tomcat.setBaseDir(base.toString());
+        tomcat.setPort(0);
+        Connector connector = tomcat.getConnector();
+        if (virtualThreads) {
+            if (Runtime.version().feature() < 21) {
+                throw new IllegalStateException("--threads virtual needs Java 21, this is " + Runtime.version());
+            }
+            connector.setProperty("useVirtualThreads", "true");
+        } else if (maxThreads > 0) {
+            connector.setProperty("maxThreads", String.valueOf(maxThreads));
+        }
+        tomcat.getHost().setAppBase(base.toString());
+        // Tomcat's defaults add a JSP servlet, and Jasper is not on the classpath; the app has
+        // no JSPs, so register only the static file servlet
+        tomcat.setAddDefaultWebXmlToWebapp(false);
+        Context context = tomcat.addWebapp("", warFile.getPath());
+        Wrapper files = Tomcat.addServlet(context, "default", "org.apache.catalina.servlets.DefaultServlet");
+        files.setLoadOnStartup(1);
+        context.addServletMappingDecoded("/", "default");
+        Tomcat.addDefaultMimeTypeMappings(context);
+        long start = System.nanoTime();
+        tomcat.start();
+        console.printf("Booted %s on port %d with %s in %.1f s (app output in %s)%n",
+            warFile.getName(), connector.getLocalPort(),
+            virtualThreads ? "virtual threads" : "platform threads (max " + (maxThreads > 0 ? maxThreads : 200) + ")",
+            (System.nanoTime() - start) / 1e9, appLog);
+        return tomcat;
+    }
+
+    private Report drive(PrintStream console) throws InterruptedException {
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        long start = System.nanoTime();
+        measureFrom = start + warmupSeconds * 1_000_000_000L;
+        measureUntil = measureFrom + durationSeconds * 1_000_000_000L;
+        console.printf("Driving %s with %d virtual users over %,d accounts: %ds warm-up, %ds measured, mix %s%n",
+            url, concurrency, users, warmupSeconds, durationSeconds, mix);
+
+        List<VirtualUser> virtualUsers = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            VirtualUser vu = new VirtualUser(new SplittableRandom(seed + i));
+            virtualUsers.add(vu);
+            Thread thread = new Thread(vu, "vu-" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        long lastCount = 0;
+        long lastTime = start;
+        while (System.nanoTime() < measureUntil) {
+            Thread.sleep(Math.max(1, Math.min(10_000, (measureUntil - System.nanoTime()) / 1_000_000)));
+            long now = System.nanoTime();
+            long count = completed.sum();
+            console.printf("  %3ds %s %,.0f req/s%n", (now - start) / 1_000_000_000L,
+                now < measureFrom ? "warm-up " : "measured", (count - lastCount) / ((now - lastTime) / 1e9));
+            lastCount = count;
+            lastTime = now;
+        }
+        for (Thread thread : threads) {
+            thread.join(REQUEST_TIMEOUT.toMillis());
+        }
+
+        Report report = new Report(durationSeconds);
+        for (VirtualUser vu : virtualUsers) {
+            report.add(vu.samples);
+        }
+        report.sort();
+        return report;
+    }
+
+    private void parseMix(String spec) {
+        mix.clear();
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) {
+                usage("Expected journey=weight in --mix, got " + part);
+            }
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight > 0) {
+                mix.put(Journey.valueOf(kv[0].trim().toUpperCase()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            usage("--mix needs at least one journey with a positive weight");
+        }
+    }
+
+    private static boolean parseThreads(String mode) {
+        switch (mode) {
+            case "virtual": return true;
+            case "platform": return false;
+            default:
+                usage("--threads is platform or virtual, got " + mode);
+                return false;
+        }
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println("Usage: LoadRunner [--war PATH | --url URL] [--users N] [--password TEXT] [--concurrency N]"
+            + " [--duration S] [--warmup S] [--think-ms N] [--mix login=5,dashboard=35,calendar=25,mood=20,entry=15]"
+            + " [--seed N] [--out PATH] [--app-log PATH] [--threads platform|virtual] [--max-threads N]");
+        System.exit(2);
+    }
+
+    /** One simulated person: logs in as a random generated user and runs journeys until the run ends. */
+    private final class VirtualUser implements Runnable {
+        final SplittableRandom random;
+        final Map<String, Samples> samples = new HashMap<>();
+        final Map<String, String> etags = new HashMap<>();
+        final Journey[] journeys;
+        String email;
+        String cookie;
+
+        VirtualUser(SplittableRandom random) {
+            this.random = random;
+            int total = 0;
+            for (int weight : mix.values()) {
+                total += weight;
+            }
+            journeys = new Journey[total];
+            int pos = 0;
+            for (Map.Entry<Journey, Integer> e : mix.entrySet()) {
+                Arrays.fill(journeys, pos, pos + e.getValue(), e.getKey());
+                pos += e.getValue();
+            }
+        }
+
+        @Override
+        public void run() {
+            email = String.format(DatasetGenerator.EMAIL_FORMAT, 1 + random.nextInt(users));
+            login();
+            while (System.nanoTime() < measureUntil) {
+                switch (journeys[random.nextInt(journeys.length)]) {
+                    case LOGIN -> login();
+                    case DASHBOARD -> {
+                        get("GET /api/stats", "/api/stats");
+                        get("GET /api/entries?limit", "/api/entries?limit=5&type=journal");
+                        get("GET /api/goals", "/api/goals");
+                    }
+                    case CALENDAR -> {
+                        YearMonth month = YearMonth.now().minusMonths(random.nextInt(12));
+                        get("GET /api/entries/calendar", "/api/entries/calendar?year=" + month.getYear()
+                            + "&month=" + month.getMonthValue());
+                        LocalDate day = month.atDay(1 + random.nextInt(month.lengthOfMonth()));
+                        get("GET /api/entries?from&to", "/api/entries?from=" + day + "&to=" + day + "&type=journal");
+                    }
+                    case MOOD -> post("POST /api/moods", "/api/moods",
+                        "{\"mood\":\"" + randomMood() + "\"}");
+                    case ENTRY -> post("POST /api/entries", "/api/entries",
+                        "{\"date\":\"" + LocalDate.now() + "\",\"mood\":\"" + randomMood()
+                        + "\",\"content\":\"Load test entry written by " + Thread.currentThread().getName()
+                        + ".\",\"type\":\"journal\"}");
+                }
+                if (thinkMs > 0) {
+                    try {
+                        Thread.sleep((long) (-thinkMs * Math.log(1.0 - random.nextDouble())));
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        private void login() {
+            cookie = null;
+            etags.clear();
+            HttpResponse<String> response = post("POST /api/login", "/api/login",
+                "{\"email\":\"" + email + "\",\"password\":\"" + password + "\"}");
+            if (response != null && response.statusCode() == 200) {
+                List<String> cookies = new ArrayList<>();
+                for (String header : response.headers().allValues("Set-Cookie")) {
+                    int semi = header.indexOf(';');
+                    cookies.add(semi < 0 ? header : header.substring(0, semi));
+                }
+                cookie = cookies.isEmpty() ? null : String.join("; ", cookies);
+                return;
+            }
+            // Like a person at the login page: wait as told (or a second) before trying again,
+            // rather than hammering a server that is already shedding load
+            long waitSeconds = response == null ? 1
+                : response.headers().firstValueAsLong("Retry-After").orElse(1);
+            try {
+                Thread.sleep(waitSeconds * 1000 + random.nextInt(1000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void get(String label, String path) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url + path)).GET();
+            String etag = etags.get(path);
+            if (etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            HttpResponse<String> response = send(label, request);
+            if (response != null && response.statusCode() == 200) {
+                response.headers().firstValue("ETag").ifPresentOrElse(e -> etags.put(path, e), () -> etags.remove(path));
+            }
+        }
+
+        private HttpResponse<String> post(String label, String path, String json) {
+            return send(label, HttpRequest.newBuilder(URI.create(url + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json)));
+        }
+
+        private HttpResponse<String> send(String label, HttpRequest.Builder builder) {
+            builder.timeout(REQUEST_TIMEOUT);
+            if (cookie != null) {
+                builder.header("Cookie", cookie);
+            }
+            long start = System.nanoTime();
+            HttpResponse<String> response;
+            int status;
+            try {
+                response = client.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+                status = response.statusCode();
+            } catch (IOException e) {
+                response = null;
+                status = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            long end = System.nanoTime();
+            completed.increment();
+            if (start >= measureFrom && end <= measureUntil) {
+                samples.computeIfAbsent(label, k -> new Samples()).add(end - start, status);
+            }
+            if (status == 401 && !label.equals("POST /api/login")) {
+                // Session expired or was never established; log in again on the next journey
+                login();
+            }
+            return response;
+        }
+
+        private String randomMood() {
+            return DatasetGenerator.MOODS[random.nextInt(DatasetGenerator.MOODS.length)];
+        }
+    }
+
+    /** Latencies in nanoseconds and status counts for one endpoint, as seen by one virtual user. */
+    private static final class Samples {
+        long[] latencies = new long[256];
+        int count;
+        final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        void add(long nanos, int status) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        void addAll(Samples other) {
+            if (count + other.count > latencies.length) {
+                latencies = Arrays.copyOf(latencies, Math.max(latencies.length * 2, count + other.count));
+            }
+            System.arraycopy(other.latencies, 0, latencies, count, other.count);
+            count += other.count;
+            other.statuses.forEach((status, n) -> statuses.merge(status, n, Integer::sum));
+        }
+    }
+
+    private static final class Report {
+        final int seconds;
+        final Map<String, Samples> endpoints = new TreeMap<>();
+
+        Report(int seconds) {
+            this.seconds = seconds;
+        }
+
+        void add(Map<String, Samples> samples) {
+            samples.forEach((label, s) -> endpoints.computeIfAbsent(label, k -> new Samples()).addAll(s));
+        }
+
+        void sort() {
+            for (Samples s : endpoints.values()) {
+                Arrays.sort(s.latencies, 0, s.count);
+            }
+        }
+
+        void print(PrintStream out) {
+            out.printf("%n%-28s %9s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            long total = 0;
+            long errors = 0;
+            for (Map.Entry<String, Samples> e : endpoints.entrySet()) {
+                Samples s = e.getValue();
+                long failed = errors(s);
+                out.printf("%-28s %,9d %,7d %,9.1f %9.2f %9.2f %9.2f %9.2f%n", e.getKey(), s.count, failed,
+                    (double) s.count / seconds, ms(percentile(s, 0.50)), ms(percentile(s, 0.99)),
+                    ms(percentile(s, 0.999)), ms(s.count == 0 ? 0 : s.latencies[s.count - 1]));
+                total += s.count;
+                errors += failed;
+            }
+            out.printf("%-28s %,9d %,7d %,9.1f%n", "total", total, errors, (double) total / seconds);
+            for (Map.Entry<String, Samples> e : endpoints.entrySet()) {
+                if (errors(e.getValue()) > 0) {
+                    out.println("  " + e.getKey() + " statuses " + e.getValue().statuses + " (0 = no response)");
+                }
+            }
+        }
+
+        Map<String, Object> toJson() {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("measuredSeconds", seconds);
+            Map<String, Object> byEndpoint = new LinkedHashMap<>();
+            for (Map.Entry<String, Samples> e : endpoints.entrySet()) {
+                Samples s = e.getValue();
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("requests", s.count);
+                row.put("errors", errors(s));
+                row.put("throughput", (double) s.count / seconds);
+                row.put("p50Ms", ms(percentile(s, 0.50)));
+                row.put("p99Ms", ms(percentile(s, 0.99)));
+                row.put("p999Ms", ms(percentile(s, 0.999)));
+                row.put("maxMs", ms(s.count == 0 ? 0 : s.latencies[s.count - 1]));
+                row.put("statuses", s.statuses);
+                byEndpoint.put(e.getKey(), row);
+            }
+            json.put("endpoints", byEndpoint);
+            return json;
+        }
+
+        // Anything but 2xx and 304 Not Modified
+        private static long errors(Samples s) {
+            long n = 0;
+            for (Map.Entry<Integer, Integer> e : s.statuses.entrySet()) {
+                int status = e.getKey();
+                if (!(status >= 200 && status < 300) && status != 304) {
+                    n += e.getValue();
+                }
+            }
+            return n;
+        }
+
+        // Nearest rank on the sorted samples
+        private static long percentile(Samples s, double q) {
+            if (s.count == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(q * s.count);
+            return s.latencies[Math.max(0, Math.min(s.count - 1, rank - 1))];
+        }
+
+        private static double ms(long nanos) {
+            return nanos / 1e6;
+        }
+    }
+}
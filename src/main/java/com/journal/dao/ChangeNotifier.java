@@ -0,0 +1,60 @@
+package com.journal.dao;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.journal.utils.Log;
+import com.journal.utils.TokenService;
+
+/**
+ * Tells interested parties (caches, version counters) that a user's data changed.
+ *
+ * DAOs fire after the write has committed, so a listener that reloads sees the new
+ * state. The user's DataVersions counter is bumped before any listener runs. Listeners
+ * run on the writing thread and must be quick and must not throw.
+ *
+ * Only writes made by this process are seen. In token mode several stateless nodes share
+ * the database, so per-node caches and version counters would miss other nodes' writes;
+ * they check seesAllWrites() and stay off there.
+ */
+public final class ChangeNotifier {
+    private static final Log LOG = Log.get(ChangeNotifier.class);
+
+    public enum Resource { ENTRIES, GOALS, MOODS, PROFILE }
+
+    @FunctionalInterface
+    public interface Listener {
+        void onChange(long userId, Resource resource);
+    }
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static final boolean SEES_ALL_WRITES = !TokenService.enabled();
+
+    private ChangeNotifier() { }
+
+    /** False when other nodes may write the same users' data (AUTH_MODE=token). */
+    public static boolean seesAllWrites() {
+        return SEES_ALL_WRITES;
+    }
+
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static void fireChanged(long userId, Resource resource) {
+        if (SEES_ALL_WRITES) {
+            DataVersions.bump(userId, resource);
+        }
+        for (Listener listener : LISTENERS) {
+            try {
+                listener.onChange(userId, resource);
+            } catch (RuntimeException e) {
+                LOG.error("Change listener failed for user {} {}: {}", userId, resource, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.journal.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.journal.utils.Log;
+
+/**
+ * Bounded JDBC connection pool used by {@link DBConnection}.
+ *
+ * Callers get a proxy whose close() hands the physical connection back to the
+ * pool, so the usual try-with-resources pattern in the DAOs keeps working.
+ * Statements created through it are timed by {@link SqlStats}.
+ */
+public class ConnectionPool {
+    private static final Log LOG = Log.get(ConnectionPool.class);
+
+    // Upper bounds (in ms) of the acquire-time histogram buckets; the last bucket is open-ended
+    private static final long[] ACQUIRE_BUCKETS_MS = {1, 5, 10, 50, 100, 500, 1000, 5000};
+
+    private final String jdbcUrl;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final long acquireTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long leakThresholdMs;
+    private final boolean leakTrace;
+    private final int validationTimeoutSec;
+    private final int statementCacheSize;
+    private final int maxWaiters;
+
+    // Fair, so a waiter woken by release() gets the returned connection before a thread
+    // that arrives later can barge in and take it; unfair waiters starved under overload
+    private final ReentrantLock lock = new ReentrantLock(true);
+    private final Condition available = lock.newCondition();
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private int totalConnections;
+    private int waiters;
+    private boolean closed;
+
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder acquireTimeouts = new LongAdder();
+    private final LongAdder waitersRejected = new LongAdder();
+    private final LongAdder validationFailures = new LongAdder();
+    private final LongAdder evictedIdle = new LongAdder();
+    private final LongAdder leaksDetected = new LongAdder();
+    private final LongAdder createdConnections = new LongAdder();
+    private final AtomicLong acquireTimeTotalNanos = new AtomicLong();
+    private final LongAdder[] acquireHistogram = new LongAdder[ACQUIRE_BUCKETS_MS.length + 1];
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+
+    private final ScheduledExecutorService housekeeper;
+
+    public ConnectionPool(String jdbcUrl, String user, String password, int maxSize,
+                          long acquireTimeoutMs, long idleTimeoutMs, long leakThresholdMs, boolean leakTrace,
+                          int statementCacheSize, int maxWaiters) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive");
+        }
+        this.jdbcUrl = jdbcUrl;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.leakThresholdMs = leakThresholdMs;
+        this.leakTrace = leakTrace;
+        this.validationTimeoutSec = 2;
+        this.statementCacheSize = statementCacheSize;
+        this.maxWaiters = maxWaiters;
+        for (int i = 0; i < acquireHistogram.length; i++) {
+            acquireHistogram[i] = new LongAdder();
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000L, Math.min(idleTimeoutMs, leakThresholdMs) / 2);
+        housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to the acquire timeout for one to be returned
+     * when the pool is at capacity. With maxWaiters set, a caller that finds that many
+     * already waiting is turned away at once: with virtual threads there is no worker
+     * pool in front to stop thousands of requests queueing here until they time out.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+        PooledConnection pc = null;
+        boolean queued = false;
+
+        while (pc == null) {
+            boolean create = false;
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && totalConnections >= maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        acquireTimeouts.increment();
+                        throw new SQLTransientConnectionException(
+                            "Timed out after " + acquireTimeoutMs + "ms waiting for a database connection "
+                            + "(active=" + borrowed.size() + ", max=" + maxSize + ")");
+                    }
+                    if (!queued && maxWaiters > 0 && waiters >= maxWaiters) {
+                        waitersRejected.increment();
+                        throw new SQLTransientConnectionException(
+                            "Database busy: " + waiters + " requests already waiting for a connection");
+                    }
+                    queued = true;
+                    waiters++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a database connection", e);
+                    } finally {
+                        waiters--;
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    pc = idle.pollFirst();
+                } else {
+                    totalConnections++;
+                    create = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                try {
+                    Connection physical = DriverManager.getConnection(jdbcUrl, user, password);
+                    pc = new PooledConnection(physical, statementCacheSize > 0
+                        ? new StatementCache(physical, statementCacheSize, statementCounters) : null);
+                    createdConnections.increment();
+                } catch (SQLException | RuntimeException e) {
+                    releaseSlot();
+                    throw e;
+                }
+            } else if (!isValid(pc)) {
+                validationFailures.increment();
+                destroy(pc);
+                pc = null;
+            }
+        }
+
+        // Filling in a stack trace on every borrow is costly, so the borrow site is opt-in;
+        // a leak is still reported with its age and thread without it
+        pc.markBorrowed(leakThresholdMs > 0 && leakTrace ? new Throwable("Connection acquired here") : null);
+        borrowed.add(pc);
+        recordAcquire(System.nanoTime() - start);
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new Lease(pc));
+    }
+
+    private boolean isValid(PooledConnection pc) {
+        try {
+            return !pc.physical.isClosed() && pc.physical.isValid(validationTimeoutSec);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        acquireCount.increment();
+        acquireTimeTotalNanos.addAndGet(nanos);
+        long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = ACQUIRE_BUCKETS_MS.length;
+        for (int i = 0; i < ACQUIRE_BUCKETS_MS.length; i++) {
+            if (ms <= ACQUIRE_BUCKETS_MS[i]) {
+                bucket = i;
+                break;
+            }
+        }
+        acquireHistogram[bucket].increment();
+    }
+
+    private void release(PooledConnection pc) {
+        if (!borrowed.remove(pc)) {
+            return; // already returned
+        }
+        boolean reusable = resetState(pc);
+        lock.lock();
+        try {
+            if (reusable && !closed) {
+                pc.lastReturned = System.currentTimeMillis();
+                idle.addFirst(pc);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        destroy(pc);
+    }
+
+    private boolean resetState(PooledConnection pc) {
+        if (pc.statements != null) {
+            pc.statements.releaseAll();
+        }
+        try {
+            if (pc.physical.isClosed()) {
+                return false;
+            }
+            if (!pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (pc.physical.isReadOnly()) {
+                pc.physical.setReadOnly(false);
+            }
+            pc.physical.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            LOG.warn("Discarding pooled connection after failed reset: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private void destroy(PooledConnection pc) {
+        if (pc.statements != null) {
+            pc.statements.closeAll();
+        }
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // nothing useful to do with a connection that will not close
+        }
+        releaseSlot();
+    }
+
+    private void releaseSlot() {
+        lock.lock();
+        try {
+            totalConnections--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void housekeep() {
+        long now = System.currentTimeMillis();
+
+        // Idle eviction: close connections that have sat unused past the idle timeout
+        List<PooledConnection> expired = new ArrayList<>();
+        lock.lock();
+        try {
+            idle.removeIf(pc -> {
+                if (now - pc.lastReturned > idleTimeoutMs) {
+                    expired.add(pc);
+                    return true;
+                }
+                return false;
+            });
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : expired) {
+            evictedIdle.increment();
+            destroy(pc);
+        }
+
+        // Leak detection: report each connection held past the threshold once, with its borrow site if traced
+        if (leakThresholdMs > 0) {
+            for (PooledConnection pc : borrowed) {
+                if (!pc.leakReported && now - pc.borrowedAt > leakThresholdMs) {
+                    pc.leakReported = true;
+                    leaksDetected.increment();
+                    String message = "Possible connection leak: connection held for "
+                        + (now - pc.borrowedAt) + "ms by thread " + pc.borrowerThread;
+                    if (pc.borrowSite != null) {
+                        LOG.warn(message, pc.borrowSite);
+                    } else {
+                        LOG.warn(message);
+                    }
+                }
+            }
+        }
+    }
+
+    public void close() {
+        housekeeper.shutdownNow();
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pc : toClose) {
+            destroy(pc);
+        }
+    }
+
+    /**
+     * Point-in-time snapshot of pool usage. Counters are cumulative since startup.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        int idleCount;
+        int total;
+        int waiting;
+        lock.lock();
+        try {
+            idleCount = idle.size();
+            total = totalConnections;
+            waiting = waiters;
+        } finally {
+            lock.unlock();
+        }
+        long acquires = acquireCount.sum();
+        stats.put("maxSize", maxSize);
+        stats.put("total", total);
+        stats.put("active", borrowed.size());
+        stats.put("idle", idleCount);
+        stats.put("waiters", waiting);
+        stats.put("acquireCount", acquires);
+        stats.put("acquireTimeouts", acquireTimeouts.sum());
+        stats.put("maxWaiters", maxWaiters);
+        stats.put("waitersRejected", waitersRejected.sum());
+        stats.put("acquireTimeAvgMicros", acquires == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(acquireTimeTotalNanos.get() / acquires));
+        stats.put("connectionsCreated", createdConnections.sum());
+        stats.put("validationFailures", validationFailures.sum());
+        stats.put("evictedIdle", evictedIdle.sum());
+        stats.put("leaksDetected", leaksDetected.sum());
+        stats.put("statementCacheHits", statementCounters.hits.sum());
+        stats.put("statementCacheMisses", statementCounters.misses.sum());
+        stats.put("statementCacheEvictions", statementCounters.evictions.sum());
+
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < ACQUIRE_BUCKETS_MS.length; i++) {
+            histogram.put("le_" + ACQUIRE_BUCKETS_MS[i] + "ms", acquireHistogram[i].sum());
+        }
+        histogram.put("gt_" + ACQUIRE_BUCKETS_MS[ACQUIRE_BUCKETS_MS.length - 1] + "ms",
+            acquireHistogram[ACQUIRE_BUCKETS_MS.length].sum());
+        stats.put("acquireTimeHistogram", Collections.unmodifiableMap(histogram));
+        return stats;
+    }
+
+    private static final class PooledConnection {
+        final Connection physical;
+        final StatementCache statements;
+        volatile long borrowedAt;
+        volatile long lastReturned = System.currentTimeMillis();
+        volatile String borrowerThread;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+
+        PooledConnection(Connection physical, StatementCache statements) {
+            this.physical = physical;
+            this.statements = statements;
+        }
+
+        void markBorrowed(Throwable site) {
+            borrowedAt = System.currentTimeMillis();
+            // Virtual threads are often unnamed; toString() still identifies them
+            Thread t = Thread.currentThread();
+            borrowerThread = t.getName().isEmpty() ? t.toString() : t.getName();
+            borrowSite = site;
+            leakReported = false;
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. A fresh handler per borrow means a caller that
+     * keeps a reference after close() cannot touch the connection once someone else has it.
+     */
+    private final class Lease implements InvocationHandler {
+        private final PooledConnection pc;
+        private volatile boolean returned;
+
+        Lease(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pc.physical.isClosed();
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                default:
+                    break;
+            }
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if (!SqlStats.enabled() || !Statement.class.isAssignableFrom(method.getReturnType())) {
+                return delegate(proxyObj, method, args);
+            }
+            long start = System.nanoTime();
+            Statement statement = (Statement) delegate(proxyObj, method, args);
+            String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+            return SqlStats.wrap(statement, method.getReturnType(), sql, System.nanoTime() - start);
+        }
+
+        private Object delegate(Object proxyObj, Method method, Object[] args) throws Throwable {
+            if (pc.statements != null && method.getName().equals("prepareStatement") && args.length <= 2
+                    && (args.length == 1 || method.getParameterTypes()[1] == int.class)) {
+                int generatedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pc.statements.prepare((Connection) proxyObj, (String) args[0], generatedKeys);
+            }
+            try {
+                return method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.journal.dao;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory version counter per user and resource, bumped by ChangeNotifier after every
+ * committed write. Servlets put the version in an ETag so an unchanged list can be
+ * answered with 304 before any query runs.
+ *
+ * Counters start at zero on every boot; the boot epoch is part of the tag so a tag handed
+ * out by an earlier process never matches. Users are never evicted: dropping a counter
+ * would reset it and let an old tag match again.
+ *
+ * Not used in token mode (see ChangeNotifier.seesAllWrites()): a write through another node
+ * would leave this node's counter, and so a client's old tag, unchanged.
+ */
+public final class DataVersions {
+
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final int RESOURCES = ChangeNotifier.Resource.values().length;
+    private static final Map<Long, AtomicLongArray> VERSIONS = new ConcurrentHashMap<>();
+
+    private DataVersions() { }
+
+    public static String epoch() {
+        return EPOCH;
+    }
+
+    public static long current(long userId, ChangeNotifier.Resource resource) {
+        AtomicLongArray versions = VERSIONS.get(userId);
+        return versions == null ? 0 : versions.get(resource.ordinal());
+    }
+
+    static void bump(long userId, ChangeNotifier.Resource resource) {
+        VERSIONS.computeIfAbsent(userId, id -> new AtomicLongArray(RESOURCES))
+            .incrementAndGet(resource.ordinal());
+    }
+}
@@ -0,0 +1,164 @@
+package com.journal.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.journal.utils.Log;
+import com.journal.utils.Settings;
+
+/**
+ * Bounded worker pool for request handlers that wait on the database (see AsyncDbServlet).
+ *
+ * Sized to the connection pool by default, since more workers than connections would only
+ * queue inside the pool. Work past the queue capacity is rejected at once so the caller can
+ * answer 503 instead of holding a container thread while the backlog grows. Requests that
+ * arrive on virtual threads skip the workers and only use the second, single-threaded timer,
+ * which runs request deadlines.
+ */
+public final class DbExecutor {
+    private static final Log LOG = Log.get(DbExecutor.class);
+
+    private static final int THREADS = Settings.getInt("DB_EXECUTOR_THREADS", DBConnection.POOL_MAX_SIZE);
+    private static final int QUEUE_CAPACITY = Settings.getInt("DB_EXECUTOR_QUEUE_SIZE", 200);
+
+    private static final LongAdder SUBMITTED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder CANCELLED = new LongAdder();
+    private static final LongAdder COMPLETED = new LongAdder();
+    private static final LongAdder WAIT_NANOS = new LongAdder();
+    private static final LongAdder RUN_NANOS = new LongAdder();
+    private static final AtomicLong MAX_WAIT_NANOS = new AtomicLong();
+
+    // Created on first use so servlets that never go async do not start any threads
+    private static final class Pools {
+        static final ThreadPoolExecutor WORKERS = workers();
+        static final ScheduledThreadPoolExecutor TIMER = timer();
+    }
+    private static volatile boolean started;
+
+    private DbExecutor() { }
+
+    /** Queues the task; throws RejectedExecutionException when the queue is full or shut down. */
+    public static Future<?> submit(Runnable task) {
+        started = true;
+        Timed timed = new Timed(task);
+        Future<?> future;
+        try {
+            future = Pools.WORKERS.submit(timed);
+        } catch (RejectedExecutionException e) {
+            REJECTED.increment();
+            throw e;
+        }
+        SUBMITTED.increment();
+        return future;
+    }
+
+    /** Drops a task that has not started yet; returns false if a worker already took it. */
+    public static boolean cancel(Future<?> future) {
+        if (Pools.WORKERS.remove((Runnable) future)) {
+            future.cancel(false);
+            CANCELLED.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public static ScheduledFuture<?> schedule(Runnable task, long delayMs) {
+        started = true;
+        return Pools.TIMER.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** Queue depth, rejections and time spent queued versus running; empty before first use. */
+    public static Map<String, Object> getStats() {
+        if (!started) {
+            return Map.of();
+        }
+        long count = COMPLETED.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("threads", THREADS);
+        stats.put("active", Pools.WORKERS.getActiveCount());
+        stats.put("queueDepth", Pools.WORKERS.getQueue().size());
+        stats.put("queueCapacity", QUEUE_CAPACITY);
+        stats.put("submitted", SUBMITTED.sum());
+        stats.put("rejected", REJECTED.sum());
+        stats.put("cancelled", CANCELLED.sum());
+        stats.put("completed", count);
+        stats.put("waitAvgMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(WAIT_NANOS.sum() / count));
+        stats.put("waitMaxMicros", TimeUnit.NANOSECONDS.toMicros(MAX_WAIT_NANOS.get()));
+        stats.put("runAvgMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(RUN_NANOS.sum() / count));
+        return stats;
+    }
+
+    /** Lets queued requests finish; called on undeploy before the pool is closed. */
+    public static void shutdown(long timeoutMs) {
+        if (!started) {
+            return;
+        }
+        Pools.WORKERS.shutdown();
+        try {
+            if (!Pools.WORKERS.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                LOG.warn("DB workers still busy after {} ms", timeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pools.TIMER.shutdownNow();
+        LOG.info("DB executor stopped: {}", getStats());
+    }
+
+    private static final class Timed implements Runnable {
+        private final Runnable task;
+        private final long queuedAt = System.nanoTime();
+
+        Timed(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            long waited = start - queuedAt;
+            WAIT_NANOS.add(waited);
+            MAX_WAIT_NANOS.accumulateAndGet(waited, Math::max);
+            try {
+                task.run();
+            } finally {
+                RUN_NANOS.add(System.nanoTime() - start);
+                COMPLETED.increment();
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor workers() {
+        AtomicInteger ids = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), task -> {
+                Thread thread = new Thread(task, "db-worker-" + ids.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, task -> {
+            Thread thread = new Thread(task, "db-deadlines");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Most deadlines are cancelled because the request finished first
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+}
@@ -1,34 +1,54 @@
 package com.journal.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.journal.models.Entry;
 
 public class EntryDAO {
+    // Rows per round trip for streaming reads
+    private static final int STREAM_FETCH_SIZE = 500;
 
     public Long createEntry(Entry entry) throws SQLException {
-        String sql = "INSERT INTO entries (user_id, entry_date, mood, content) VALUES (?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setLong(1, entry.getUserId());
-            ps.setDate(2, entry.getEntryDate());
-            ps.setString(3, entry.getMood());
-            ps.setString(4, entry.getContent());
-            ps.executeUpdate();
-            
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getLong(1);
+        String sql = "INSERT INTO entries (user_id, entry_date, mood, content, entry_type) VALUES (?, ?, ?, ?, ?)";
+        String type = entry.getEntryType() != null ? entry.getEntryType() : Entry.TYPE_JOURNAL;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Long id = null;
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setLong(1, entry.getUserId());
+                    ps.setDate(2, entry.getEntryDate());
+                    ps.setString(3, entry.getMood());
+                    ps.setString(4, entry.getContent());
+                    ps.setString(5, type);
+                    ps.executeUpdate();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            id = rs.getLong(1);
+                        }
+                    }
                 }
+                if (id != null) {
+                    UserStatsDAO.applyEntryCreated(conn, entry.getUserId(), id, entry.getMood(), type);
+                }
+                conn.commit();
+                ChangeNotifier.fireChanged(entry.getUserId(), ChangeNotifier.Resource.ENTRIES);
+                return id;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
-        return null;
     }
 
     public Entry findById(Long id) throws SQLException {
@@ -38,14 +58,7 @@ public class EntryDAO {
             ps.setLong(1, id);
             try (ResultSet rs = ps.executeQuery()) {
                 if (rs.next()) {
-                    Entry entry = new Entry();
-                    entry.setId(rs.getLong("id"));
-                    entry.setUserId(rs.getLong("user_id"));
-                    entry.setEntryDate(rs.getDate("entry_date"));
-                    entry.setMood(rs.getString("mood"));
-                    entry.setContent(rs.getString("content"));
-                    entry.setCreatedAt(rs.getTimestamp("created_at"));
-                    return entry;
+                    return mapRow(rs);
                 }
             }
         }
@@ -53,48 +66,295 @@ public class EntryDAO {
     }
 
     public List<Entry> findByUserId(Long userId) throws SQLException {
-        String sql = "SELECT * FROM entries WHERE user_id = ? ORDER BY entry_date DESC";
+        return findByUserId(userId, null);
+    }
+
+    /** All of a user's entries of the given type (null for every type), newest first. */
+    public List<Entry> findByUserId(Long userId, String type) throws SQLException {
+        String sql = type == null
+            ? "SELECT * FROM entries WHERE user_id = ? ORDER BY entry_date DESC"
+            : "SELECT * FROM entries WHERE user_id = ? AND entry_type = ? ORDER BY entry_date DESC";
         List<Entry> entries = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, userId);
+            if (type != null) {
+                ps.setString(2, type);
+            }
             try (ResultSet rs = ps.executeQuery()) {
                 while (rs.next()) {
-                    Entry entry = new Entry();
-                    entry.setId(rs.getLong("id"));
-                    entry.setUserId(rs.getLong("user_id"));
-                    entry.setEntryDate(rs.getDate("entry_date"));
-                    entry.setMood(rs.getString("mood"));
-                    entry.setContent(rs.getString("content"));
-                    entry.setCreatedAt(rs.getTimestamp("created_at"));
-                    entries.add(entry);
+                    entries.add(mapRow(rs));
                 }
             }
         }
         return entries;
     }
 
-    public boolean updateEntryOwned(Long userId, Entry entry) throws SQLException {
-        String sql = "UPDATE entries SET entry_date = ?, mood = ?, content = ? WHERE id = ? AND user_id = ?";
+    /**
+     * One page of a user's entries, newest first, ordered by (entry_date, id); undated entries
+     * come last. Pass a null afterDate/afterId for the first page, otherwise the date and id of
+     * the last entry on the previous page, with a null afterDate if that entry had no date.
+     * A null type returns every type.
+     */
+    public List<Entry> findPageByUserId(Long userId, String type, java.sql.Date afterDate, Long afterId, int limit)
+            throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT * FROM entries WHERE user_id = ?");
+        if (type != null) {
+            sql.append(" AND entry_type = ?");
+        }
+        if (afterDate != null) {
+            // entry_date <= ? keeps the predicate usable as an index range on (user_id, [entry_type,] entry_date)
+            sql.append(" AND (entry_date <= ? AND (entry_date < ? OR id < ?) OR entry_date IS NULL)");
+        } else if (afterId != null) {
+            sql.append(" AND entry_date IS NULL AND id < ?");
+        }
+        sql.append(" ORDER BY entry_date DESC NULLS LAST, id DESC LIMIT ?");
+
+        List<Entry> entries = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int i = 1;
+            ps.setLong(i++, userId);
+            if (type != null) {
+                ps.setString(i++, type);
+            }
+            if (afterDate != null) {
+                ps.setDate(i++, afterDate);
+                ps.setDate(i++, afterDate);
+                ps.setLong(i++, afterId);
+            } else if (afterId != null) {
+                ps.setLong(i++, afterId);
+            }
+            ps.setInt(i, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapRow(rs));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /** Entries dated within [from, to] inclusive, newest first; served by the (user_id, ..., entry_date) indexes. */
+    public List<Entry> findByUserIdAndDateRange(Long userId, String type, java.sql.Date from, java.sql.Date to)
+            throws SQLException {
+        String sql = type == null
+            ? "SELECT * FROM entries WHERE user_id = ? AND entry_date BETWEEN ? AND ? ORDER BY entry_date DESC, id DESC"
+            : "SELECT * FROM entries WHERE user_id = ? AND entry_type = ? AND entry_date BETWEEN ? AND ? ORDER BY entry_date DESC, id DESC";
+        List<Entry> entries = new ArrayList<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setDate(1, entry.getEntryDate());
-            ps.setString(2, entry.getMood());
-            ps.setString(3, entry.getContent());
-            ps.setLong(4, entry.getId());
-            ps.setLong(5, userId);
-            return ps.executeUpdate() > 0;
+            int i = 1;
+            ps.setLong(i++, userId);
+            if (type != null) {
+                ps.setString(i++, type);
+            }
+            ps.setDate(i++, from);
+            ps.setDate(i, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    entries.add(mapRow(rs));
+                }
+            }
         }
+        return entries;
     }
 
-    public boolean deleteEntryOwned(Long userId, Long id) throws SQLException {
-        String sql = "DELETE FROM entries WHERE id = ? AND user_id = ?";
+    /**
+     * Streams a user's entries of the given type (null for every type), oldest first, to
+     * the callback as they are read. The cursor is forward-only and H2 executes the query
+     * lazily for this session, so memory stays flat however many entries the user has.
+     */
+    public int streamByUserId(Long userId, String type, RowCallback<Entry> callback)
+            throws SQLException, IOException {
+        String sql = type == null
+            ? "SELECT * FROM entries WHERE user_id = ? ORDER BY entry_date, id"
+            : "SELECT * FROM entries WHERE user_id = ? AND entry_type = ? ORDER BY entry_date, id";
+        int count = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            DBConnection.setLazyExecution(conn, true);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                ps.setLong(1, userId);
+                if (type != null) {
+                    ps.setString(2, type);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        callback.onRow(mapRow(rs));
+                        count++;
+                    }
+                }
+            } finally {
+                DBConnection.setLazyExecution(conn, false);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Writes a user's entries of the given type (null for every type) to out as a JSON
+     * array while they are read, newest first: the same order and fields as findByUserId,
+     * without building the list.
+     */
+    public int writeJsonByUserId(Long userId, String type, JsonRowWriter out)
+            throws SQLException, IOException {
+        String sql = type == null
+            ? "SELECT * FROM entries WHERE user_id = ? ORDER BY entry_date DESC"
+            : "SELECT * FROM entries WHERE user_id = ? AND entry_type = ? ORDER BY entry_date DESC";
+        try (Connection conn = DBConnection.getConnection()) {
+            DBConnection.setLazyExecution(conn, true);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                ps.setLong(1, userId);
+                if (type != null) {
+                    ps.setString(2, type);
+                }
+                return writeJsonRows(ps, out);
+            } finally {
+                DBConnection.setLazyExecution(conn, false);
+            }
+        }
+    }
+
+    /** JSON array counterpart of findByUserIdAndDateRange. */
+    public int writeJsonByUserIdAndDateRange(Long userId, String type, java.sql.Date from, java.sql.Date to,
+                                             JsonRowWriter out) throws SQLException, IOException {
+        String sql = type == null
+            ? "SELECT * FROM entries WHERE user_id = ? AND entry_date BETWEEN ? AND ? ORDER BY entry_date DESC, id DESC"
+            : "SELECT * FROM entries WHERE user_id = ? AND entry_type = ? AND entry_date BETWEEN ? AND ? ORDER BY entry_date DESC, id DESC";
+        try (Connection conn = DBConnection.getConnection()) {
+            DBConnection.setLazyExecution(conn, true);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                int i = 1;
+                ps.setLong(i++, userId);
+                if (type != null) {
+                    ps.setString(i++, type);
+                }
+                ps.setDate(i++, from);
+                ps.setDate(i, to);
+                return writeJsonRows(ps, out);
+            } finally {
+                DBConnection.setLazyExecution(conn, false);
+            }
+        }
+    }
+
+    private static int writeJsonRows(PreparedStatement ps, JsonRowWriter out) throws SQLException, IOException {
+        int count = 0;
+        out.writer().beginArray();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                writeRow(rs, out);
+                count++;
+            }
+        }
+        out.writer().endArray();
+        return count;
+    }
+
+    /**
+     * Moods of the journal entries dated within [from, to], grouped by day as "YYYY-MM-DD"
+     * in date and creation order. Only the two small columns are read, so a calendar
+     * month costs one index range scan.
+     */
+    public Map<String, List<String>> findMoodsByDay(Long userId, java.sql.Date from, java.sql.Date to)
+            throws SQLException {
+        String sql = "SELECT entry_date, mood FROM entries WHERE user_id = ? AND entry_type = ? "
+            + "AND entry_date BETWEEN ? AND ? ORDER BY entry_date, created_at, id";
+        Map<String, List<String>> moodsByDay = new LinkedHashMap<>();
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            ps.setString(2, Entry.TYPE_JOURNAL);
+            ps.setDate(3, from);
+            ps.setDate(4, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    moodsByDay.computeIfAbsent(rs.getDate("entry_date").toString(), d -> new ArrayList<>())
+                        .add(rs.getString("mood"));
+                }
+            }
+        }
+        return moodsByDay;
+    }
+
+    /** Updates an owned entry; a null entry type keeps the stored one. */
+    public boolean updateEntryOwned(Long userId, Entry entry) throws SQLException {
+        String sql = "UPDATE entries SET entry_date = ?, mood = ?, content = ?, entry_type = ? WHERE id = ? AND user_id = ?";
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Entry existing = lockOwned(conn, userId, entry.getId());
+                if (existing == null) {
+                    conn.rollback();
+                    return false;
+                }
+                String type = entry.getEntryType() != null ? entry.getEntryType() : existing.getEntryType();
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setDate(1, entry.getEntryDate());
+                    ps.setString(2, entry.getMood());
+                    ps.setString(3, entry.getContent());
+                    ps.setString(4, type);
+                    ps.setLong(5, entry.getId());
+                    ps.setLong(6, userId);
+                    ps.executeUpdate();
+                }
+                UserStatsDAO.applyEntryUpdated(conn, userId, entry.getId(),
+                    existing.getMood(), existing.getEntryType(), entry.getMood(), type);
+                conn.commit();
+                ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.ENTRIES);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    public boolean deleteEntryOwned(Long userId, Long id) throws SQLException {
+        String sql = "DELETE FROM entries WHERE id = ? AND user_id = ?";
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Entry existing = lockOwned(conn, userId, id);
+                if (existing == null) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setLong(1, id);
+                    ps.setLong(2, userId);
+                    ps.executeUpdate();
+                }
+                UserStatsDAO.applyEntryDeleted(conn, userId, id, existing.getMood(), existing.getEntryType());
+                conn.commit();
+                ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.ENTRIES);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Reads the current mood/type of an owned entry and locks the row until commit
+    private Entry lockOwned(Connection conn, Long userId, Long id) throws SQLException {
+        String sql = "SELECT mood, entry_type FROM entries WHERE id = ? AND user_id = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
             ps.setLong(2, userId);
-            return ps.executeUpdate() > 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    Entry entry = new Entry();
+                    entry.setMood(rs.getString("mood"));
+                    entry.setEntryType(rs.getString("entry_type"));
+                    return entry;
+                }
+            }
         }
+        return null;
     }
 
     public List<Entry> getAllEntries() throws SQLException {
@@ -104,16 +364,34 @@ public class EntryDAO {
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
             while (rs.next()) {
-                Entry entry = new Entry();
-                entry.setId(rs.getLong("id"));
-                entry.setUserId(rs.getLong("user_id"));
-                entry.setEntryDate(rs.getDate("entry_date"));
-                entry.setMood(rs.getString("mood"));
-                entry.setContent(rs.getString("content"));
-                entry.setCreatedAt(rs.getTimestamp("created_at"));
-                entries.add(entry);
+                entries.add(mapRow(rs));
             }
         }
         return entries;
     }
+
+    private static Entry mapRow(ResultSet rs) throws SQLException {
+        Entry entry = new Entry();
+        entry.setId(rs.getLong("id"));
+        entry.setUserId(rs.getLong("user_id"));
+        entry.setEntryDate(rs.getDate("entry_date"));
+        entry.setMood(rs.getString("mood"));
+        entry.setContent(rs.getString("content"));
+        entry.setEntryType(rs.getString("entry_type"));
+        entry.setCreatedAt(rs.getTimestamp("created_at"));
+        return entry;
+    }
+
+    // Same fields, in Entry's declaration order, as gson.toJson(mapRow(rs))
+    private static void writeRow(ResultSet rs, JsonRowWriter out) throws SQLException, IOException {
+        out.beginRow();
+        out.field("id", rs.getLong("id"));
+        out.field("userId", rs.getLong("user_id"));
+        out.field("entryDate", rs.getDate("entry_date"));
+        out.field("mood", rs.getString("mood"));
+        out.field("content", rs.getString("content"));
+        out.field("entryType", rs.getString("entry_type"));
+        out.field("createdAt", rs.getTimestamp("created_at"));
+        out.endRow();
+    }
 }
@@ -1,5 +1,6 @@
 package com.journal.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -14,22 +15,35 @@ public class GoalDAO {
 
     public Long createGoal(Goal goal) throws SQLException {
         String sql = "INSERT INTO goals (user_id, title, description, target_date, completed) VALUES (?, ?, ?, ?, ?)";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setLong(1, goal.getUserId());
-            ps.setString(2, goal.getTitle());
-            ps.setString(3, goal.getDescription());
-            ps.setDate(4, goal.getTargetDate());
-            ps.setBoolean(5, goal.getCompleted());
-            ps.executeUpdate();
-            
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getLong(1);
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Long id = null;
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setLong(1, goal.getUserId());
+                    ps.setString(2, goal.getTitle());
+                    ps.setString(3, goal.getDescription());
+                    ps.setDate(4, goal.getTargetDate());
+                    ps.setBoolean(5, goal.getCompleted());
+                    ps.executeUpdate();
+
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            id = rs.getLong(1);
+                        }
+                    }
                 }
+                if (id != null) {
+                    UserStatsDAO.applyGoalChange(conn, goal.getUserId(), 1, goal.getCompleted() ? 1 : 0);
+                }
+                conn.commit();
+                ChangeNotifier.fireChanged(goal.getUserId(), ChangeNotifier.Resource.GOALS);
+                return id;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         }
-        return null;
     }
 
     public Goal findById(Long id) throws SQLException {
@@ -77,38 +91,133 @@ public class GoalDAO {
         return goals;
     }
 
-    public boolean updateGoalOwned(Long userId, Goal goal) throws SQLException {
-        String sql = "UPDATE goals SET title = ?, description = ?, target_date = ?, completed = ? WHERE id = ? AND user_id = ?";
+    /** Writes the user's goals to out as a JSON array: the same order and fields as findByUserId. */
+    public int writeJsonByUserId(Long userId, JsonRowWriter out) throws SQLException, IOException {
+        String sql = "SELECT * FROM goals WHERE user_id = ? ORDER BY created_at DESC";
+        int count = 0;
         try (Connection conn = DBConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, goal.getTitle());
-            ps.setString(2, goal.getDescription());
-            ps.setDate(3, goal.getTargetDate());
-            ps.setBoolean(4, goal.getCompleted());
-            ps.setLong(5, goal.getId());
-            ps.setLong(6, userId);
-            return ps.executeUpdate() > 0;
+            ps.setLong(1, userId);
+            out.writer().beginArray();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    out.beginRow();
+                    out.field("id", rs.getLong("id"));
+                    out.field("userId", rs.getLong("user_id"));
+                    out.field("title", rs.getString("title"));
+                    out.field("description", rs.getString("description"));
+                    out.field("targetDate", rs.getDate("target_date"));
+                    out.field("completed", rs.getBoolean("completed"));
+                    out.field("createdAt", rs.getTimestamp("created_at"));
+                    out.endRow();
+                    count++;
+                }
+            }
+            out.writer().endArray();
+        }
+        return count;
+    }
+
+    public boolean updateGoalOwned(Long userId, Goal goal) throws SQLException {
+        String sql = "UPDATE goals SET title = ?, description = ?, target_date = ?, completed = ? WHERE id = ? AND user_id = ?";
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Boolean wasCompleted = lockCompletedOwned(conn, userId, goal.getId());
+                if (wasCompleted == null) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setString(1, goal.getTitle());
+                    ps.setString(2, goal.getDescription());
+                    ps.setDate(3, goal.getTargetDate());
+                    ps.setBoolean(4, goal.getCompleted());
+                    ps.setLong(5, goal.getId());
+                    ps.setLong(6, userId);
+                    ps.executeUpdate();
+                }
+                UserStatsDAO.applyGoalChange(conn, userId, 0, completedDelta(wasCompleted, goal.getCompleted()));
+                conn.commit();
+                ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.GOALS);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
 
     public boolean updateGoalCompletionOwned(Long userId, Long id, boolean completed) throws SQLException {
         String sql = "UPDATE goals SET completed = ? WHERE id = ? AND user_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setBoolean(1, completed);
-            ps.setLong(2, id);
-            ps.setLong(3, userId);
-            return ps.executeUpdate() > 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Boolean wasCompleted = lockCompletedOwned(conn, userId, id);
+                if (wasCompleted == null) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setBoolean(1, completed);
+                    ps.setLong(2, id);
+                    ps.setLong(3, userId);
+                    ps.executeUpdate();
+                }
+                UserStatsDAO.applyGoalChange(conn, userId, 0, completedDelta(wasCompleted, completed));
+                conn.commit();
+                ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.GOALS);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
         }
     }
 
     public boolean deleteGoalOwned(Long userId, Long id) throws SQLException {
         String sql = "DELETE FROM goals WHERE id = ? AND user_id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Boolean wasCompleted = lockCompletedOwned(conn, userId, id);
+                if (wasCompleted == null) {
+                    conn.rollback();
+                    return false;
+                }
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setLong(1, id);
+                    ps.setLong(2, userId);
+                    ps.executeUpdate();
+                }
+                UserStatsDAO.applyGoalChange(conn, userId, -1, wasCompleted ? -1 : 0);
+                conn.commit();
+                ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.GOALS);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Returns the completed flag of an owned goal (null if not found) and locks the row until commit
+    private Boolean lockCompletedOwned(Connection conn, Long userId, Long id) throws SQLException {
+        String sql = "SELECT completed FROM goals WHERE id = ? AND user_id = ? FOR UPDATE";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setLong(1, id);
             ps.setLong(2, userId);
-            return ps.executeUpdate() > 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getBoolean("completed");
+                }
+            }
         }
+        return null;
+    }
+
+    private static int completedDelta(boolean before, Boolean after) {
+        boolean now = Boolean.TRUE.equals(after);
+        return now == before ? 0 : (now ? 1 : -1);
     }
 }
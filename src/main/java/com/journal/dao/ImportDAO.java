@@ -0,0 +1,115 @@
+package com.journal.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import com.journal.models.Entry;
+import com.journal.models.Goal;
+import com.journal.models.Mood;
+
+/**
+ * Batched inserts for bulk imports. Each call writes one chunk of already validated
+ * records in a single transaction with one executeBatch per table, then adds the chunk's
+ * totals to the user's stats in a few statements. Recounting instead would rescan all of
+ * the user's entries for every chunk.
+ */
+public class ImportDAO {
+
+    /** Inserts the chunk and sets the generated id on every model object. All or nothing. */
+    public void insertChunk(Long userId, List<Entry> entries, List<Goal> goals, List<Mood> moods)
+            throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                insertEntries(conn, userId, entries);
+                insertGoals(conn, userId, goals);
+                insertMoods(conn, userId, moods);
+                UserStatsDAO.applyEntriesCreated(conn, userId, entries);
+                int completed = 0;
+                for (Goal goal : goals) {
+                    if (Boolean.TRUE.equals(goal.getCompleted())) {
+                        completed++;
+                    }
+                }
+                UserStatsDAO.applyGoalChange(conn, userId, goals.size(), completed);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        if (!entries.isEmpty()) {
+            ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.ENTRIES);
+        }
+        if (!goals.isEmpty()) {
+            ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.GOALS);
+        }
+        if (!moods.isEmpty()) {
+            ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.MOODS);
+        }
+    }
+
+    private void insertEntries(Connection conn, Long userId, List<Entry> entries) throws SQLException {
+        if (entries.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO entries (user_id, entry_date, mood, content, entry_type) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Entry entry : entries) {
+                if (entry.getEntryType() == null) {
+                    entry.setEntryType(Entry.TYPE_JOURNAL);
+                }
+                ps.setLong(1, userId);
+                ps.setDate(2, entry.getEntryDate());
+                ps.setString(3, entry.getMood());
+                ps.setString(4, entry.getContent());
+                ps.setString(5, entry.getEntryType());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < entries.size() && rs.next(); i++) {
+                    entries.get(i).setId(rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    private void insertGoals(Connection conn, Long userId, List<Goal> goals) throws SQLException {
+        if (goals.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO goals (user_id, title, description, target_date, completed) VALUES (?, ?, ?, ?, ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Goal goal : goals) {
+                ps.setLong(1, userId);
+                ps.setString(2, goal.getTitle());
+                ps.setString(3, goal.getDescription());
+                ps.setDate(4, goal.getTargetDate());
+                ps.setBoolean(5, Boolean.TRUE.equals(goal.getCompleted()));
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < goals.size() && rs.next(); i++) {
+                    goals.get(i).setId(rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    // Moods imported without a timestamp are logged now, like the column default
+    private void insertMoods(Connection conn, Long userId, List<Mood> moods) throws SQLException {
+        if (moods.isEmpty()) {
+            return;
+        }
+        for (Mood mood : moods) {
+            mood.setUserId(userId);
+        }
+        MoodDAO.insertBatch(conn, moods);
+    }
+}
@@ -0,0 +1,62 @@
+package com.journal.dao;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonWriter;
+
+/**
+ * Writes query rows as JSON objects straight to a JsonWriter, field by field, so list
+ * endpoints need neither model objects nor a response String.
+ *
+ * The DAOs write the fields in model declaration order and dates go through the given
+ * Gson's own adapters, so the output is the same as gson.toJson(list). Create the
+ * JsonWriter with gson.newJsonWriter so null and HTML escaping settings match too.
+ */
+public final class JsonRowWriter {
+    private final JsonWriter out;
+    private final TypeAdapter<Date> dateAdapter;
+    private final TypeAdapter<Timestamp> timestampAdapter;
+
+    public JsonRowWriter(JsonWriter out, Gson gson) {
+        this.out = out;
+        this.dateAdapter = gson.getAdapter(Date.class);
+        this.timestampAdapter = gson.getAdapter(Timestamp.class);
+    }
+
+    public JsonWriter writer() {
+        return out;
+    }
+
+    void beginRow() throws IOException {
+        out.beginObject();
+    }
+
+    void endRow() throws IOException {
+        out.endObject();
+    }
+
+    void field(String name, long value) throws IOException {
+        out.name(name).value(value);
+    }
+
+    void field(String name, boolean value) throws IOException {
+        out.name(name).value(value);
+    }
+
+    // With nulls not serialized (Gson's default) the writer drops the name as well
+    void field(String name, String value) throws IOException {
+        out.name(name).value(value);
+    }
+
+    void field(String name, Date value) throws IOException {
+        dateAdapter.write(out.name(name), value);
+    }
+
+    void field(String name, Timestamp value) throws IOException {
+        timestampAdapter.write(out.name(name), value);
+    }
+}
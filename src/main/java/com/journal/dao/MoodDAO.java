@@ -1,16 +1,109 @@
 package com.journal.dao;
 
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import com.journal.models.Mood;
+import com.journal.utils.Log;
+import com.journal.utils.Settings;
 
 public class MoodDAO {
+    private static final Log LOG = Log.get(MoodDAO.class);
+
+    /**
+     * How check-ins are written (MOOD_WRITE_MODE):
+     * direct - one INSERT and commit per request (default);
+     * batched - through the write-behind queue, the request still waits for its id;
+     * accepted - through the queue, the request is acknowledged as soon as it is queued.
+     */
+    public enum WriteMode { DIRECT, BATCHED, ACCEPTED }
+
+    private static final WriteMode WRITE_MODE = writeModeSetting();
+
+    // Created on first use so the default direct mode never starts the writer thread
+    private static final class WriteBehind {
+        static final MoodWriteQueue QUEUE = new MoodWriteQueue(
+            Settings.getInt("MOOD_QUEUE_CAPACITY", 10_000),
+            Settings.getInt("MOOD_BATCH_SIZE", 100),
+            Settings.getInt("MOOD_BATCH_DELAY_MS", 2),
+            Settings.getInt("MOOD_QUEUE_OFFER_TIMEOUT_MS", 50));
+    }
+    private static volatile boolean writeBehindStarted;
+
+    public static WriteMode getWriteMode() {
+        return WRITE_MODE;
+    }
+
+    /**
+     * Writes a check-in according to the write mode. The future completes with the new id
+     * once the row is committed. Throws RejectedExecutionException when the write-behind
+     * queue is full.
+     */
+    public CompletableFuture<Long> submitMood(Mood mood) {
+        if (WRITE_MODE == WriteMode.DIRECT) {
+            try {
+                return CompletableFuture.completedFuture(createMood(mood));
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        writeBehindStarted = true;
+        return WriteBehind.QUEUE.submit(mood);
+    }
+
+    /** Queue depth and batch sizes of the write-behind queue; empty in direct mode. */
+    public static Map<String, Object> getWriteQueueStats() {
+        return writeBehindStarted ? WriteBehind.QUEUE.getStats() : Map.of();
+    }
+
+    /** Writes out queued check-ins; called on undeploy before the pool is closed. */
+    public static void shutdownWriteQueue() {
+        if (writeBehindStarted) {
+            WriteBehind.QUEUE.shutdown(10_000);
+        }
+    }
+
+    // Inserts the moods with one executeBatch on the caller's transaction and sets their ids
+    static void insertBatch(Connection conn, List<Mood> moods) throws SQLException {
+        String sql = "INSERT INTO moods (user_id, mood, logged_at) VALUES (?, ?, COALESCE(?, CURRENT_TIMESTAMP))";
+        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            for (Mood mood : moods) {
+                ps.setLong(1, mood.getUserId());
+                ps.setString(2, mood.getMood());
+                if (mood.getLoggedAt() != null) {
+                    ps.setTimestamp(3, mood.getLoggedAt());
+                } else {
+                    ps.setNull(3, Types.TIMESTAMP);
+                }
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            try (ResultSet rs = ps.getGeneratedKeys()) {
+                for (int i = 0; i < moods.size() && rs.next(); i++) {
+                    moods.get(i).setId(rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    private static WriteMode writeModeSetting() {
+        String value = Settings.getString("MOOD_WRITE_MODE", "direct");
+        try {
+            return WriteMode.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("Ignoring invalid MOOD_WRITE_MODE={}, using direct", value);
+            return WriteMode.DIRECT;
+        }
+    }
 
     public Long createMood(Mood mood) throws SQLException {
         String sql = "INSERT INTO moods (user_id, mood) VALUES (?, ?)";
@@ -19,6 +112,7 @@ public class MoodDAO {
             ps.setLong(1, mood.getUserId());
             ps.setString(2, mood.getMood());
             ps.executeUpdate();
+            ChangeNotifier.fireChanged(mood.getUserId(), ChangeNotifier.Resource.MOODS);
             
             try (ResultSet rs = ps.getGeneratedKeys()) {
                 if (rs.next()) {
@@ -49,6 +143,38 @@ public class MoodDAO {
         return moods;
     }
 
+    /**
+     * Writes the user's check-ins to out as a JSON array while they are read: the same
+     * order and fields as findByUserId. H2 runs the query lazily, since a user who checks
+     * in often can have many rows.
+     */
+    public int writeJsonByUserId(Long userId, JsonRowWriter out) throws SQLException, IOException {
+        String sql = "SELECT * FROM moods WHERE user_id = ? ORDER BY logged_at DESC";
+        int count = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            DBConnection.setLazyExecution(conn, true);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setLong(1, userId);
+                out.writer().beginArray();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        out.beginRow();
+                        out.field("id", rs.getLong("id"));
+                        out.field("userId", rs.getLong("user_id"));
+                        out.field("mood", rs.getString("mood"));
+                        out.field("loggedAt", rs.getTimestamp("logged_at"));
+                        out.endRow();
+                        count++;
+                    }
+                }
+                out.writer().endArray();
+            } finally {
+                DBConnection.setLazyExecution(conn, false);
+            }
+        }
+        return count;
+    }
+
     public List<Mood> getRecentMoods(Long userId, int limit) throws SQLException {
         String sql = "SELECT * FROM moods WHERE user_id = ? ORDER BY logged_at DESC LIMIT ?";
         List<Mood> moods = new ArrayList<>();
@@ -71,11 +197,27 @@ public class MoodDAO {
     }
 
     public boolean deleteMood(Long id) throws SQLException {
-        String sql = "DELETE FROM moods WHERE id = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setLong(1, id);
-            return ps.executeUpdate() > 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            // The owner is needed to tell the user's caches the list changed
+            Long userId = null;
+            try (PreparedStatement ps = conn.prepareStatement("SELECT user_id FROM moods WHERE id = ?")) {
+                ps.setLong(1, id);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        userId = rs.getLong(1);
+                    }
+                }
+            }
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM moods WHERE id = ?")) {
+                ps.setLong(1, id);
+                if (ps.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            if (userId != null) {
+                ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.MOODS);
+            }
+            return true;
         }
     }
 }
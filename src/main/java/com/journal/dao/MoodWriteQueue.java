@@ -0,0 +1,202 @@
+package com.journal.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.journal.models.Mood;
+import com.journal.utils.Log;
+
+/**
+ * Write-behind queue for mood check-ins (group commit).
+ *
+ * Callers enqueue and get a future for the generated id. A single writer thread takes
+ * whatever is queued, waits up to maxDelayMs for more until it has maxBatchSize, and
+ * inserts the batch with one executeBatch and one commit. A full queue rejects new
+ * check-ins after a short wait instead of letting them pile up in memory.
+ */
+class MoodWriteQueue {
+    private static final Log LOG = Log.get(MoodWriteQueue.class);
+
+    private record Pending(Mood mood, CompletableFuture<Long> result) { }
+
+    private final BlockingQueue<Pending> queue;
+    private final int capacity;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutMs;
+    private final Thread writer;
+    private volatile boolean accepting = true;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final AtomicInteger lastBatchSize = new AtomicInteger();
+    private final AtomicInteger largestBatchSize = new AtomicInteger();
+
+    MoodWriteQueue(int capacity, int maxBatchSize, long maxDelayMs, long offerTimeoutMs) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.writer = new Thread(this::run, "mood-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /** Queues a check-in; throws RejectedExecutionException when the queue stays full or is shut down. */
+    CompletableFuture<Long> submit(Mood mood) {
+        if (!accepting) {
+            throw new RejectedExecutionException("Mood writer is shut down");
+        }
+        Pending pending = new Pending(mood, new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            rejected.increment();
+            throw new RejectedExecutionException("Mood queue is full");
+        }
+        if (!accepting && queue.remove(pending)) {
+            // Shut down while we waited: shutdown() may have drained already, so nobody would write it
+            rejected.increment();
+            pending.result.completeExceptionally(new RejectedExecutionException("Mood writer is shut down"));
+            throw new RejectedExecutionException("Mood writer is shut down");
+        }
+        submitted.increment();
+        return pending.result;
+    }
+
+    Map<String, Object> getStats() {
+        long batchCount = batches.sum();
+        long writtenCount = written.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", capacity);
+        stats.put("submitted", submitted.sum());
+        stats.put("written", writtenCount);
+        stats.put("failed", failed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("batches", batchCount);
+        stats.put("averageBatchSize", batchCount == 0 ? 0.0 : (double) writtenCount / batchCount);
+        stats.put("lastBatchSize", lastBatchSize.get());
+        stats.put("largestBatchSize", largestBatchSize.get());
+        return stats;
+    }
+
+    /** Stops accepting check-ins and writes everything already queued before returning. */
+    void shutdown(long timeoutMs) {
+        accepting = false;
+        try {
+            writer.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Submissions that raced with shutdown, or everything if the writer did not finish in time
+        List<Pending> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            write(rest);
+        }
+        LOG.info("Mood writer stopped: {}", getStats());
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (accepting || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || !accepting) {
+                        break;
+                    }
+                    Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // shutdown() drains whatever is left
+            if (!batch.isEmpty()) {
+                write(batch);
+            }
+        }
+    }
+
+    private void write(List<Pending> batch) {
+        List<Mood> moods = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            moods.add(pending.mood);
+        }
+        try {
+            insertInTransaction(moods);
+        } catch (SQLException e) {
+            if (batch.size() == 1) {
+                failed.increment();
+                LOG.error("✗ SQL Error writing mood: {}", e.getMessage());
+                batch.get(0).result.completeExceptionally(e);
+                return;
+            }
+            // One bad row must not fail everyone else's check-in: retry them one by one
+            LOG.error("✗ SQL Error writing mood batch of {}, retrying individually: {}", batch.size(), e.getMessage());
+            for (Pending pending : batch) {
+                write(List.of(pending));
+            }
+            return;
+        }
+        Set<Long> users = new HashSet<>();
+        for (Pending pending : batch) {
+            if (users.add(pending.mood.getUserId())) {
+                ChangeNotifier.fireChanged(pending.mood.getUserId(), ChangeNotifier.Resource.MOODS);
+            }
+            pending.result.complete(pending.mood.getId());
+        }
+        written.add(batch.size());
+        batches.increment();
+        lastBatchSize.set(batch.size());
+        largestBatchSize.accumulateAndGet(batch.size(), Math::max);
+    }
+
+    private static void insertInTransaction(List<Mood> moods) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                MoodDAO.insertBatch(conn, moods);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+}
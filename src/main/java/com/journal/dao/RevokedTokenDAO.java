@@ -0,0 +1,51 @@
+package com.journal.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Auth tokens revoked before their expiry (see TokenService). Rows are only needed until the
+ * token expires, so the table stays as small as the number of recent logouts.
+ */
+public class RevokedTokenDAO {
+
+    public void revoke(long tokenId, long expiresAtMillis) throws SQLException {
+        String sql = "MERGE INTO revoked_tokens (token_id, expires_at) KEY (token_id) VALUES (?, ?)";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, tokenId);
+            ps.setTimestamp(2, new Timestamp(expiresAtMillis));
+            ps.executeUpdate();
+        }
+    }
+
+    /** Token id to expiry in epoch millis, for every revocation still in force at nowMillis. */
+    public Map<Long, Long> findActive(long nowMillis) throws SQLException {
+        String sql = "SELECT token_id, expires_at FROM revoked_tokens WHERE expires_at > ?";
+        Map<Long, Long> revoked = new HashMap<>();
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(nowMillis));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    revoked.put(rs.getLong(1), rs.getTimestamp(2).getTime());
+                }
+            }
+        }
+        return revoked;
+    }
+
+    public int deleteExpired(long nowMillis) throws SQLException {
+        String sql = "DELETE FROM revoked_tokens WHERE expires_at <= ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, new Timestamp(nowMillis));
+            return ps.executeUpdate();
+        }
+    }
+}
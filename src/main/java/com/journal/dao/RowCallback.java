@@ -0,0 +1,13 @@
+package com.journal.dao;
+
+import java.io.IOException;
+
+/**
+ * Receives rows one at a time from a streaming query, so callers can write them out
+ * without the DAO building a list first. The row object must not be kept after the
+ * call returns.
+ */
+@FunctionalInterface
+public interface RowCallback<T> {
+    void onRow(T row) throws IOException;
+}
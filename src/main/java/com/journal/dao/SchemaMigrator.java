@@ -0,0 +1,185 @@
+package com.journal.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.journal.utils.Log;
+
+/**
+ * Applies the versioned SQL scripts under /db/migration in order, once each.
+ *
+ * Applied versions are recorded in schema_version together with a checksum of the
+ * script, so an edited script that already ran is reported instead of silently
+ * diverging from what is in the database.
+ *
+ * A script is not atomic: H2 commits the open transaction at every DDL statement, so a
+ * script that fails partway leaves its earlier statements applied and no schema_version
+ * row, and runs again in full on the next start. Every script has to be safe to re-run
+ * from any point: IF [NOT] EXISTS on DDL, and inserts and updates guarded so they skip
+ * rows an earlier attempt already handled. A script that falls short of that once released
+ * is corrected by a new script, never by editing it.
+ */
+public class SchemaMigrator {
+    private static final Log LOG = Log.get(SchemaMigrator.class);
+
+    private static final String LOCATION = "/db/migration/";
+
+    // Ordered list of scripts; add new migrations to the end, never edit applied ones
+    private static final String[] MIGRATIONS = {
+        "V1__baseline_schema.sql",
+        "V2__drop_legacy_password_column.sql",
+        "V3__per_user_indexes.sql",
+        "V4__user_stats.sql",
+        "V5__entry_type.sql",
+        "V6__revoked_tokens.sql",
+        "V7__reclassify_prefixed_gratitude_notes.sql",
+    };
+
+    private SchemaMigrator() { }
+
+    public static synchronized int migrate(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS schema_version (
+                  version INT PRIMARY KEY,
+                  description VARCHAR(255),
+                  script VARCHAR(255),
+                  checksum BIGINT,
+                  installed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                  execution_ms BIGINT
+                );
+                """);
+        }
+
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_version")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+
+        int count = 0;
+        int lastVersion = 0;
+        for (String script : MIGRATIONS) {
+            int version = versionOf(script);
+            if (version <= lastVersion) {
+                throw new SQLException("Migrations out of order at " + script);
+            }
+            lastVersion = version;
+
+            String sql = load(script);
+            long checksum = checksum(sql);
+            Long appliedChecksum = applied.get(version);
+            if (appliedChecksum != null) {
+                if (appliedChecksum != checksum) {
+                    throw new SQLException("Checksum mismatch for applied migration " + script
+                        + " (database " + appliedChecksum + ", script " + checksum + ")");
+                }
+                continue;
+            }
+
+            LOG.info("Applying migration {}", script);
+            long start = System.currentTimeMillis();
+            boolean autoCommit = conn.getAutoCommit();
+            // Only the statements after the script's last DDL roll back together with the
+            // version row; see the class comment
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                for (String statement : splitStatements(sql)) {
+                    st.execute(statement);
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO schema_version (version, description, script, checksum, execution_ms) VALUES (?, ?, ?, ?, ?)")) {
+                    ps.setInt(1, version);
+                    ps.setString(2, descriptionOf(script));
+                    ps.setString(3, script);
+                    ps.setLong(4, checksum);
+                    ps.setLong(5, System.currentTimeMillis() - start);
+                    ps.executeUpdate();
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Migration " + script + " failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            count++;
+        }
+        return count;
+    }
+
+    static int versionOf(String script) {
+        int sep = script.indexOf("__");
+        return Integer.parseInt(script.substring(1, sep));
+    }
+
+    static String descriptionOf(String script) {
+        int sep = script.indexOf("__");
+        return script.substring(sep + 2, script.length() - ".sql".length()).replace('_', ' ');
+    }
+
+    private static String load(String script) throws SQLException {
+        try (InputStream in = SchemaMigrator.class.getResourceAsStream(LOCATION + script)) {
+            if (in == null) {
+                throw new SQLException("Migration script not found: " + LOCATION + script);
+            }
+            // Normalize line endings so a checkout with CRLF does not change the checksum
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration " + script, e);
+        }
+    }
+
+    static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+
+    // Splits on semicolons outside of quoted strings and skips "--" comment lines
+    static List<String> splitStatements(String sql) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuote = false;
+        for (String line : sql.split("\n")) {
+            if (!inQuote && line.trim().startsWith("--")) {
+                continue;
+            }
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '\'') {
+                    inQuote = !inQuote;
+                }
+                if (c == ';' && !inQuote) {
+                    addStatement(statements, current);
+                } else {
+                    current.append(c);
+                }
+            }
+            current.append('\n');
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+}
@@ -0,0 +1,457 @@
+package com.journal.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import com.journal.utils.Log;
+import com.journal.utils.Settings;
+
+/**
+ * Time spent in the database per SQL statement, recorded by proxies around the statements
+ * and result sets that pooled connections hand out (see ConnectionPool.Lease).
+ *
+ * Statements are grouped by their text with literals replaced by ? and IN lists collapsed,
+ * so the handful of queries each DAO runs stay a handful of rows. Prepare, execute and fetch
+ * (time inside ResultSet.next()) are kept apart: a query that is fast to execute but returns
+ * thousands of rows shows up as fetch time, not as a slow execute. A statement whose execute
+ * plus fetch takes SQL_SLOW_MS or longer is logged with the shapes of its parameters
+ * (types and string lengths, never values).
+ *
+ * Every execute is timed. Fetching is only measured on one query in SQL_STATS_FETCH_SAMPLE
+ * (and the first of each statement), because counting rows means a proxy around the result
+ * set, and a reflective call per getter costs a quarter of a 1000-row read. Rows and fetch
+ * time are therefore per-query averages over the sampled queries; totals are estimates.
+ */
+public final class SqlStats {
+    private static final Log LOG = Log.get(SqlStats.class);
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(Settings.getString("SQL_STATS_ENABLED", "true"));
+    private static final long SLOW_NANOS = TimeUnit.MILLISECONDS.toNanos(Settings.getInt("SQL_SLOW_MS", 250));
+    private static final int MAX_STATEMENTS = Settings.getInt("SQL_STATS_MAX_STATEMENTS", 500);
+    private static final int FETCH_SAMPLE = Math.max(1, Settings.getInt("SQL_STATS_FETCH_SAMPLE", 16));
+    private static final Object NULL = new Object();
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern IN_LIST = Pattern.compile("(?i)\\bIN \\(\\?(?:, ?\\?)+\\)");
+    private static final Pattern VALUES_ROWS = Pattern.compile("(\\((?:\\?, ?)*\\?\\))(?:, ?\\((?:\\?, ?)*\\?\\))+");
+
+    // Raw SQL to its normalized form, so DAO constants are normalized once
+    private static final Map<String, String> NORMALIZED = new ConcurrentHashMap<>();
+    private static final Map<String, Stat> STATS = new ConcurrentHashMap<>();
+    private static final Stat OTHER = new Stat("(other statements)");
+    private static final LongAdder SLOW = new LongAdder();
+
+    /** Counters for one normalized statement. */
+    static final class Stat {
+        final String sql;
+        final LongAdder prepares = new LongAdder();
+        final LongAdder prepareNanos = new LongAdder();
+        final LongAdder executions = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder executeNanos = new LongAdder();
+        final LongAdder updatedRows = new LongAdder();
+        final LongAdder queries = new LongAdder();
+        final LongAdder fetchSamples = new LongAdder();
+        final LongAdder sampledFetchNanos = new LongAdder();
+        final LongAdder sampledRows = new LongAdder();
+        final LongAdder slow = new LongAdder();
+        final AtomicLong maxNanos = new AtomicLong();
+
+        Stat(String sql) {
+            this.sql = sql;
+        }
+
+        boolean sampleFetch() {
+            return FETCH_SAMPLE == 1 || fetchSamples.sum() == 0 || ThreadLocalRandom.current().nextInt(FETCH_SAMPLE) == 0;
+        }
+
+        void sampled(long executeNanos, long fetchNanos, long rowCount, StatementHandler statement) {
+            fetchSamples.increment();
+            sampledFetchNanos.add(fetchNanos);
+            sampledRows.add(rowCount);
+            finish(executeNanos + fetchNanos, rowCount, statement);
+        }
+
+        /** rowCount is -1 for a query whose rows were not sampled. */
+        void finish(long nanos, long rowCount, StatementHandler statement) {
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+            if (nanos >= SLOW_NANOS) {
+                slow.increment();
+                SLOW.increment();
+                LOG.warn("Slow SQL ({} ms, {}): {} params {}", TimeUnit.NANOSECONDS.toMillis(nanos),
+                        rowCount < 0 ? "rows not sampled" : rowCount + " rows", sql, statement.parameterShapes());
+            }
+        }
+
+        /** Sampled fetch time scaled up to every query. */
+        long estimatedFetchNanos() {
+            long samples = fetchSamples.sum();
+            return samples == 0 ? 0 : (long) ((double) sampledFetchNanos.sum() / samples * queries.sum());
+        }
+
+        Map<String, Object> toMap() {
+            long count = executions.sum();
+            long samples = fetchSamples.sum();
+            long fetch = estimatedFetchNanos();
+            long total = executeNanos.sum() + fetch;
+            Map<String, Object> map = new HashMap<>();
+            map.put("sql", sql);
+            map.put("executions", count);
+            map.put("errors", errors.sum());
+            map.put("totalMs", millis(total));
+            map.put("avgMs", count == 0 ? 0 : millis(total / count));
+            map.put("maxMs", millis(maxNanos.get()));
+            map.put("executeMs", millis(executeNanos.sum()));
+            map.put("fetchMs", millis(fetch));
+            map.put("queries", queries.sum());
+            map.put("fetchSamples", samples);
+            map.put("rowsPerQuery", samples == 0 ? 0 : Math.round(sampledRows.sum() * 10.0 / samples) / 10.0);
+            map.put("updatedRows", updatedRows.sum());
+            map.put("prepares", prepares.sum());
+            map.put("prepareMs", millis(prepareNanos.sum()));
+            map.put("slow", slow.sum());
+            return map;
+        }
+    }
+
+    private SqlStats() { }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Totals across statements, for /metrics. */
+    public static Map<String, Object> getStats() {
+        long executions = 0;
+        long errors = 0;
+        long nanos = 0;
+        for (Stat stat : all()) {
+            executions += stat.executions.sum();
+            errors += stat.errors.sum();
+            nanos += stat.executeNanos.sum() + stat.estimatedFetchNanos();
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("enabled", ENABLED);
+        stats.put("statements", STATS.size());
+        stats.put("executions", executions);
+        stats.put("errors", errors);
+        stats.put("timeMs", millis(nanos));
+        stats.put("slow", SLOW.sum());
+        stats.put("slowThresholdMs", TimeUnit.NANOSECONDS.toMillis(SLOW_NANOS));
+        stats.put("fetchSample", FETCH_SAMPLE);
+        return stats;
+    }
+
+    /**
+     * Per-statement numbers, highest first by the given key ("totalMs", "maxMs", "avgMs",
+     * "executions", "rowsPerQuery" or "slow"), at most limit of them.
+     */
+    public static List<Map<String, Object>> top(String sortBy, int limit) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Stat stat : all()) {
+            rows.add(stat.toMap());
+        }
+        Comparator<Map<String, Object>> order = Comparator.comparingDouble(row -> ((Number) row.get(sortBy)).doubleValue());
+        rows.sort(order.reversed());
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    public static void reset() {
+        STATS.clear();
+        NORMALIZED.clear();
+        SLOW.reset();
+        OTHER.prepares.reset();
+        OTHER.prepareNanos.reset();
+        OTHER.executions.reset();
+        OTHER.errors.reset();
+        OTHER.executeNanos.reset();
+        OTHER.updatedRows.reset();
+        OTHER.queries.reset();
+        OTHER.fetchSamples.reset();
+        OTHER.sampledFetchNanos.reset();
+        OTHER.sampledRows.reset();
+        OTHER.slow.reset();
+        OTHER.maxNanos.set(0);
+    }
+
+    private static List<Stat> all() {
+        List<Stat> all = new ArrayList<>(STATS.values());
+        if (OTHER.executions.sum() > 0 || OTHER.prepares.sum() > 0) {
+            all.add(OTHER);
+        }
+        return all;
+    }
+
+    /**
+     * Wraps a statement just created on a pooled connection. sql is null for createStatement(),
+     * whose SQL only arrives with each execute call.
+     */
+    static Statement wrap(Statement statement, Class<?> type, String sql, long prepareNanos) {
+        Stat stat = null;
+        if (sql != null) {
+            stat = statFor(sql);
+            stat.prepares.increment();
+            stat.prepareNanos.add(prepareNanos);
+        }
+        return (Statement) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+                new StatementHandler(statement, stat));
+    }
+
+    static Stat statFor(String sql) {
+        String normalized = NORMALIZED.get(sql);
+        if (normalized == null) {
+            normalized = normalize(sql);
+            if (NORMALIZED.size() < MAX_STATEMENTS * 4) {
+                NORMALIZED.put(sql, normalized);
+            }
+        }
+        Stat stat = STATS.get(normalized);
+        if (stat == null) {
+            if (STATS.size() >= MAX_STATEMENTS) {
+                return OTHER;
+            }
+            stat = STATS.computeIfAbsent(normalized, Stat::new);
+        }
+        return stat;
+    }
+
+    /** SQL text with whitespace collapsed, string and number literals as ?, and IN lists and multi-row VALUES shortened. */
+    static String normalize(String sql) {
+        String text = WHITESPACE.matcher(sql.trim()).replaceAll(" ");
+        StringBuilder out = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '\'') {
+                i++;
+                while (i < text.length()) {
+                    if (text.charAt(i) == '\'') {
+                        if (i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                out.append('?');
+                i++;
+            } else if (Character.isDigit(c) && (out.length() == 0 || !isIdentifierPart(out.charAt(out.length() - 1)))) {
+                while (i < text.length() && (Character.isDigit(text.charAt(i)) || text.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        String result = IN_LIST.matcher(out).replaceAll("IN (?)");
+        return VALUES_ROWS.matcher(result).replaceAll("$1");
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    /** Milliseconds to the microsecond; most statements here take well under one. */
+    private static double millis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos) / 1000.0;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /** Times executes and remembers bound parameters for the slow log. */
+    static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final Stat prepared;
+        private Object[] parameters;
+        private ResultHandler open;
+
+        StatementHandler(Statement statement, Stat prepared) {
+            this.statement = statement;
+            this.prepared = prepared;
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                bind((Integer) args[0], name.equals("setNull") ? NULL : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters = null;
+            } else if (name.equals("close")) {
+                finishOpen();
+            } else if (name.equals("equals")) {
+                return proxyObj == args[0];
+            } else if (name.equals("hashCode")) {
+                return System.identityHashCode(proxyObj);
+            }
+            return SqlStats.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            finishOpen();
+            Stat stat = prepared;
+            if (stat == null) {
+                stat = args != null && args.length > 0 && args[0] instanceof String ? statFor((String) args[0]) : OTHER;
+            }
+            stat.executions.increment();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = SqlStats.invoke(statement, method, args);
+            } catch (Throwable t) {
+                stat.errors.increment();
+                stat.executeNanos.add(System.nanoTime() - start);
+                throw t;
+            }
+            long elapsed = System.nanoTime() - start;
+            stat.executeNanos.add(elapsed);
+            if (result instanceof ResultSet) {
+                stat.queries.increment();
+                if (!stat.sampleFetch()) {
+                    stat.finish(elapsed, -1, this);
+                    return result;
+                }
+                open = new ResultHandler(stat, elapsed, this, (ResultSet) result);
+                return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] { ResultSet.class }, open);
+            }
+            long rows = 0;
+            if (result instanceof Integer || result instanceof Long) {
+                rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(count, 0);
+                }
+            }
+            stat.updatedRows.add(rows);
+            stat.finish(elapsed, rows, this);
+            return result;
+        }
+
+        private void bind(int index, Object value) {
+            if (parameters == null || parameters.length < index) {
+                parameters = parameters == null ? new Object[Math.max(index, 8)] : Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = value;
+        }
+
+        private void finishOpen() {
+            if (open != null) {
+                open.finish();
+                open = null;
+            }
+        }
+
+        String parameterShapes() {
+            if (parameters == null) {
+                return "[]";
+            }
+            int count = parameters.length;
+            while (count > 0 && parameters[count - 1] == null) {
+                count--;
+            }
+            StringBuilder shapes = new StringBuilder("[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    shapes.append(", ");
+                }
+                Object value = parameters[i];
+                if (value == null || value == NULL) {
+                    shapes.append("null");
+                } else if (value instanceof String) {
+                    shapes.append("string(").append(((String) value).length()).append(')');
+                } else if (value instanceof byte[]) {
+                    shapes.append("bytes(").append(((byte[]) value).length).append(')');
+                } else {
+                    shapes.append(value.getClass().getSimpleName().toLowerCase());
+                }
+            }
+            return shapes.append(']').toString();
+        }
+    }
+
+    /** Counts rows and the time spent fetching them; the statement is finished when the rows run out or the set closes. */
+    private static final class ResultHandler implements InvocationHandler {
+        private final Stat stat;
+        private final long executeNanos;
+        private final StatementHandler statement;
+        private final ResultSet resultSet;
+        private long fetchNanos;
+        private long rows;
+        private boolean finished;
+
+        ResultHandler(Stat stat, long executeNanos, StatementHandler statement, ResultSet resultSet) {
+            this.stat = stat;
+            this.executeNanos = executeNanos;
+            this.statement = statement;
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    long start = System.nanoTime();
+                    boolean more = resultSet.next();
+                    fetchNanos += System.nanoTime() - start;
+                    if (more) {
+                        rows++;
+                    } else {
+                        finish();
+                    }
+                    return more;
+                case "close":
+                    finish();
+                    break;
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                default:
+                    break;
+            }
+            return SqlStats.invoke(resultSet, method, args);
+        }
+
+        void finish() {
+            if (!finished) {
+                finished = true;
+                stat.sampled(executeNanos, fetchNanos, rows, statement);
+            }
+        }
+    }
+}
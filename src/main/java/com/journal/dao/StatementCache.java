@@ -0,0 +1,180 @@
+package com.journal.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one physical connection.
+ *
+ * Statements handed out are proxies whose close() clears parameters and keeps the
+ * underlying statement open for the next caller that prepares the same SQL on this
+ * connection. Only used by the thread that currently holds the connection, so no
+ * locking is needed; the counters are shared across all connections of a pool.
+ */
+class StatementCache {
+
+    private record Key(String sql, int autoGeneratedKeys) { }
+
+    private static final class Cached {
+        final PreparedStatement statement;
+        boolean inUse;
+        int checkout;
+
+        Cached(PreparedStatement statement) {
+            this.statement = statement;
+        }
+    }
+
+    /** Pool-wide hit/miss/eviction counters. */
+    static final class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+    private final Map<Key, Cached> statements;
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        Cached cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            counters.hits.increment();
+        } else {
+            counters.misses.increment();
+            PreparedStatement ps = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null) {
+                // Same SQL already checked out on this connection (nested use): don't cache the second copy
+                return ps;
+            }
+            cached = new Cached(ps);
+            statements.put(key, cached);
+            evictOverflow();
+        }
+        cached.inUse = true;
+        cached.checkout++;
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+            new Class<?>[] { PreparedStatement.class }, new Handle(owner, cached));
+    }
+
+    private void evictOverflow() {
+        Iterator<Cached> it = statements.values().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            Cached eldest = it.next();
+            if (eldest.inUse) {
+                continue;
+            }
+            it.remove();
+            counters.evictions.increment();
+            closeQuietly(eldest.statement);
+        }
+    }
+
+    /** Called when the connection goes back to the pool: statements the borrower forgot to close become reusable. */
+    void releaseAll() {
+        for (Cached cached : statements.values()) {
+            if (cached.inUse) {
+                cached.inUse = false;
+                cached.checkout++; // invalidates the handle the borrower still holds
+                try {
+                    cached.statement.clearParameters();
+                } catch (SQLException ignored) {
+                    // parameters are always bound again before the next execute
+                }
+            }
+        }
+    }
+
+    void closeAll() {
+        for (Cached cached : statements.values()) {
+            closeQuietly(cached.statement);
+        }
+        statements.clear();
+    }
+
+    private static void closeQuietly(Statement st) {
+        try {
+            st.close();
+        } catch (SQLException ignored) {
+            // closing a cached statement is best effort
+        }
+    }
+
+    private final class Handle implements InvocationHandler {
+        private final Connection owner;
+        private final Cached cached;
+        private final int checkout;
+        private boolean returned;
+
+        Handle(Connection owner, Cached cached) {
+            this.owner = owner;
+            this.cached = cached;
+            this.checkout = cached.checkout;
+        }
+
+        @Override
+        public Object invoke(Object proxyObj, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned && checkout == cached.checkout) {
+                        returned = true;
+                        returnToCache();
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || checkout != cached.checkout || cached.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxyObj == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxyObj);
+                default:
+                    break;
+            }
+            if (returned || checkout != cached.checkout) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void returnToCache() throws SQLException {
+            try {
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+                cached.statement.clearWarnings();
+            } catch (SQLException e) {
+                statements.values().remove(cached);
+                closeQuietly(cached.statement);
+                throw e;
+            } finally {
+                cached.inUse = false;
+            }
+        }
+    }
+}
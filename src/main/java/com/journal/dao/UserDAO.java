@@ -5,11 +5,43 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
 
 import com.journal.models.User;
+import com.journal.utils.LruCache;
+import com.journal.utils.Settings;
 
 public class UserDAO {
 
+    // Users by id, and the id that owns each email, which login looks accounts up by. Shared
+    // by every DAO instance; profile writes drop the id entry, and an email entry is checked
+    // against the user it points to because an email change leaves the old mapping behind.
+    // Unknown ids and emails are not cached, so a registration is seen at once and a scan of
+    // emails cannot fill the cache. Password checks read the hash itself from the database.
+    // Off in token mode, where another node's profile write would not drop this node's copy.
+    private static final int CACHE_SIZE = Settings.getInt("USER_CACHE_SIZE", 5000);
+    private static final long CACHE_TTL_MS = Settings.getInt("USER_CACHE_TTL_MS", 5 * 60 * 1000);
+    private static final LruCache<Long, User> BY_ID = new LruCache<>(CACHE_SIZE, CACHE_TTL_MS);
+    private static final LruCache<String, Long> BY_EMAIL = new LruCache<>(CACHE_SIZE, CACHE_TTL_MS);
+
+    static {
+        ChangeNotifier.addListener((userId, resource) -> {
+            if (resource == ChangeNotifier.Resource.PROFILE) {
+                BY_ID.invalidate(userId);
+            }
+        });
+    }
+
+    public static Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("byId", BY_ID.getStats());
+        stats.put("byEmail", BY_EMAIL.getStats());
+        stats.put("ttlMs", CACHE_TTL_MS);
+        stats.put("enabled", ChangeNotifier.seesAllWrites());
+        return stats;
+    }
+
     public Long createUser(User user) throws SQLException {
         String sql = "INSERT INTO users (name, email, password_hash) VALUES (?, ?, ?)";
         try (Connection conn = DBConnection.getConnection();
@@ -27,23 +59,31 @@ public class UserDAO {
         return null;
     }
 
+    /** The user with this id, or null. Cached and shared between callers: do not modify it. */
+    public User findById(long userId) throws SQLException {
+        if (!ChangeNotifier.seesAllWrites()) {
+            return loadById(userId);
+        }
+        return BY_ID.get(userId, () -> loadById(userId));
+    }
+
+    /** The user with this email, or null. Cached and shared between callers: do not modify it. */
     public User findByEmail(String email) throws SQLException {
-        String sql = "SELECT id, name, email, password_hash FROM users WHERE email = ?";
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, email);
-            try (ResultSet rs = ps.executeQuery()) {
-                if (rs.next()) {
-                    User u = new User();
-                    u.setId(rs.getLong("id"));
-                    u.setName(rs.getString("name"));
-                    u.setEmail(rs.getString("email"));
-                    u.setPasswordHash(rs.getString("password_hash"));
-                    return u;
-                }
-            }
+        if (!ChangeNotifier.seesAllWrites()) {
+            return loadByEmail(email);
         }
-        return null;
+        Long userId = BY_EMAIL.get(email, () -> loadIdByEmail(email));
+        if (userId == null) {
+            return null;
+        }
+        User user = findById(userId);
+        if (user == null || !email.equals(user.getEmail())) {
+            // The email moved to another account, or this account changed it, since it was cached
+            BY_EMAIL.invalidate(email);
+            userId = BY_EMAIL.get(email, () -> loadIdByEmail(email));
+            user = userId != null ? findById(userId) : null;
+        }
+        return user;
     }
 
     public boolean updateUser(User user) throws SQLException {
@@ -53,7 +93,104 @@ public class UserDAO {
             ps.setString(1, user.getName());
             ps.setString(2, user.getPasswordHash());
             ps.setLong(3, user.getId());
-            return ps.executeUpdate() > 0;
+            boolean updated = ps.executeUpdate() > 0;
+            if (updated) {
+                ChangeNotifier.fireChanged(user.getId(), ChangeNotifier.Resource.PROFILE);
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * The user with this email, for checking a password: the account comes from the caches
+     * like findByEmail, its password hash from the database. Not shared; callers may modify it.
+     */
+    public User findForLogin(String email) throws SQLException {
+        if (!ChangeNotifier.seesAllWrites()) {
+            return loadByEmail(email);
+        }
+        User cached = findByEmail(email);
+        String hash = cached != null ? findPasswordHash(cached.getId()) : null;
+        if (hash == null) {
+            return null;
+        }
+        User user = new User(cached.getId(), cached.getName(), cached.getEmail(), hash);
+        user.setCreatedAt(cached.getCreatedAt());
+        return user;
+    }
+
+    /**
+     * The stored password hash of this user, or null, read from the database. Login and the
+     * profile password check both use it, so a hash is never trusted from a cache.
+     */
+    public String findPasswordHash(long userId) throws SQLException {
+        String sql = "SELECT password_hash FROM users WHERE id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    // Only replaces the hash it was computed from, so a password change made meanwhile wins
+    public boolean replacePasswordHash(long userId, String oldHash, String newHash) throws SQLException {
+        String sql = "UPDATE users SET password_hash = ? WHERE id = ? AND password_hash = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, newHash);
+            ps.setLong(2, userId);
+            ps.setString(3, oldHash);
+            boolean replaced = ps.executeUpdate() > 0;
+            if (replaced) {
+                // Not a profile change as far as clients are concerned, so no notification
+                BY_ID.invalidate(userId);
+            }
+            return replaced;
+        }
+    }
+
+    private static User loadById(long userId) throws SQLException {
+        String sql = "SELECT id, name, email, password_hash, created_at FROM users WHERE id = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
+            }
+        }
+    }
+
+    private static User loadByEmail(String email) throws SQLException {
+        String sql = "SELECT id, name, email, password_hash, created_at FROM users WHERE email = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, email);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
+            }
+        }
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        User u = new User();
+        u.setId(rs.getLong("id"));
+        u.setName(rs.getString("name"));
+        u.setEmail(rs.getString("email"));
+        u.setPasswordHash(rs.getString("password_hash"));
+        u.setCreatedAt(rs.getTimestamp("created_at"));
+        return u;
+    }
+
+    private static Long loadIdByEmail(String email) throws SQLException {
+        String sql = "SELECT id FROM users WHERE email = ?";
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, email);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
         }
     }
 }
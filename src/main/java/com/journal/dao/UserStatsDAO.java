@@ -0,0 +1,342 @@
+package com.journal.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.journal.models.Entry;
+
+/**
+ * Materialized per-user counters (user_stats and user_mood_counts) behind /api/stats.
+ *
+ * The apply* methods take the caller's connection and must run inside the same
+ * transaction as the entry or goal write they account for.
+ */
+public class UserStatsDAO {
+
+    private static final String DEFAULT_MOOD = "😐";
+
+    // Gratitude notes are stored as entries but are not counted as journal entries
+    static boolean countsAsJournalEntry(String entryType) {
+        return Entry.TYPE_JOURNAL.equals(entryType);
+    }
+
+    /**
+     * Loads the stats for one user in a single round trip: the users row joined with its
+     * counters and one row per mood in the histogram.
+     */
+    public Map<String, Object> loadStats(Long userId) throws SQLException {
+        String sql = """
+            SELECT u.name, s.entry_count, s.goal_count, s.completed_goal_count,
+                   s.latest_entry_id, s.latest_mood, m.mood, m.mood_count
+            FROM users u
+            LEFT JOIN user_stats s ON s.user_id = u.id
+            LEFT JOIN user_mood_counts m ON m.user_id = u.id AND m.mood_count > 0
+            WHERE u.id = ?
+            """;
+        Map<String, Object> stats = new HashMap<>();
+        Map<String, Integer> moodDistribution = new HashMap<>();
+        int totalEntries = 0;
+        int totalGoals = 0;
+        int completedGoals = 0;
+        String currentMood = DEFAULT_MOOD;
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                boolean first = true;
+                while (rs.next()) {
+                    if (first) {
+                        first = false;
+                        stats.put("username", rs.getString("name"));
+                        totalEntries = rs.getInt("entry_count");
+                        totalGoals = rs.getInt("goal_count");
+                        completedGoals = rs.getInt("completed_goal_count");
+                        rs.getLong("latest_entry_id");
+                        if (!rs.wasNull()) {
+                            currentMood = rs.getString("latest_mood");
+                        }
+                    }
+                    String mood = rs.getString("mood");
+                    if (mood != null) {
+                        moodDistribution.put(mood, rs.getInt("mood_count"));
+                    }
+                }
+            }
+        }
+
+        stats.put("totalEntries", totalEntries);
+        stats.put("totalGoals", totalGoals);
+        stats.put("completedGoals", completedGoals);
+        stats.put("goalsProgress", totalGoals > 0 ? (completedGoals * 100) / totalGoals : 0);
+        stats.put("currentMood", currentMood);
+        stats.put("moodDistribution", moodDistribution);
+        return stats;
+    }
+
+    /** Accounts for a newly inserted entry; it is the user's latest entry by creation time. */
+    static void applyEntryCreated(Connection conn, long userId, long entryId, String mood, String entryType)
+            throws SQLException {
+        if (!countsAsJournalEntry(entryType)) {
+            return;
+        }
+        ensureRow(conn, userId);
+        String sql = "UPDATE user_stats SET entry_count = entry_count + 1, latest_entry_id = ?, latest_mood = ? WHERE user_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, entryId);
+            ps.setString(2, mood);
+            ps.setLong(3, userId);
+            ps.executeUpdate();
+        }
+        adjustMoodCount(conn, userId, mood, 1);
+    }
+
+    /**
+     * Accounts for entries inserted together, such as an import chunk, in a few statements
+     * whatever their number. The last of them is the user's latest entry, as they all share
+     * the insert's creation time and it has the highest id.
+     */
+    static void applyEntriesCreated(Connection conn, long userId, List<Entry> entries) throws SQLException {
+        Map<String, Integer> moodCounts = new HashMap<>();
+        Entry latest = null;
+        int count = 0;
+        for (Entry entry : entries) {
+            if (countsAsJournalEntry(entry.getEntryType())) {
+                count++;
+                latest = entry;
+                if (entry.getMood() != null) {
+                    moodCounts.merge(entry.getMood(), 1, Integer::sum);
+                }
+            }
+        }
+        if (latest == null) {
+            return;
+        }
+        ensureRow(conn, userId);
+        String sql = "UPDATE user_stats SET entry_count = entry_count + ?, latest_entry_id = ?, latest_mood = ? WHERE user_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, count);
+            ps.setLong(2, latest.getId());
+            ps.setString(3, latest.getMood());
+            ps.setLong(4, userId);
+            ps.executeUpdate();
+        }
+        for (Map.Entry<String, Integer> mood : moodCounts.entrySet()) {
+            adjustMoodCount(conn, userId, mood.getKey(), mood.getValue());
+        }
+    }
+
+    /** Accounts for an in-place edit of an entry, given its mood and type before and after. */
+    static void applyEntryUpdated(Connection conn, long userId, long entryId,
+                                  String oldMood, String oldType, String newMood, String newType)
+            throws SQLException {
+        boolean wasCounted = countsAsJournalEntry(oldType);
+        boolean isCounted = countsAsJournalEntry(newType);
+        if (!wasCounted && !isCounted) {
+            return;
+        }
+        ensureRow(conn, userId);
+        if (wasCounted) {
+            adjustMoodCount(conn, userId, oldMood, -1);
+        }
+        if (isCounted) {
+            adjustMoodCount(conn, userId, newMood, 1);
+        }
+        if (wasCounted != isCounted) {
+            adjustCounter(conn, userId, "entry_count", isCounted ? 1 : -1);
+            refreshLatestEntry(conn, userId);
+        } else if (isLatestEntry(conn, userId, entryId)) {
+            String sql = "UPDATE user_stats SET latest_mood = ? WHERE user_id = ?";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, newMood);
+                ps.setLong(2, userId);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    static void applyEntryDeleted(Connection conn, long userId, long entryId, String mood, String entryType)
+            throws SQLException {
+        if (!countsAsJournalEntry(entryType)) {
+            return;
+        }
+        ensureRow(conn, userId);
+        adjustCounter(conn, userId, "entry_count", -1);
+        adjustMoodCount(conn, userId, mood, -1);
+        if (isLatestEntry(conn, userId, entryId)) {
+            refreshLatestEntry(conn, userId);
+        }
+    }
+
+    static void applyGoalChange(Connection conn, long userId, int goalDelta, int completedDelta)
+            throws SQLException {
+        if (goalDelta == 0 && completedDelta == 0) {
+            return;
+        }
+        ensureRow(conn, userId);
+        String sql = "UPDATE user_stats SET goal_count = goal_count + ?, completed_goal_count = completed_goal_count + ? WHERE user_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, goalDelta);
+            ps.setInt(2, completedDelta);
+            ps.setLong(3, userId);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * Recomputes one user's counters from the entries and goals tables, for when they
+     * have drifted (manual SQL edits, restores from backup, bugs).
+     */
+    public void rebuild(Long userId) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                rebuild(conn, userId);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /** Recomputes the counters of every user; returns the number of users rebuilt. */
+    public int rebuildAll() throws SQLException {
+        List<Long> userIds = new ArrayList<>();
+        try (Connection conn = DBConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT id FROM users ORDER BY id")) {
+            while (rs.next()) {
+                userIds.add(rs.getLong("id"));
+            }
+        }
+        for (Long userId : userIds) {
+            rebuild(userId);
+        }
+        return userIds.size();
+    }
+
+    static void rebuild(Connection conn, long userId) throws SQLException {
+        ensureRow(conn, userId);
+        String countsSql = """
+            UPDATE user_stats SET
+              entry_count = (SELECT COUNT(*) FROM entries WHERE user_id = ? AND entry_type = 'journal'),
+              goal_count = (SELECT COUNT(*) FROM goals WHERE user_id = ?),
+              completed_goal_count = (SELECT COUNT(*) FROM goals WHERE user_id = ? AND completed = TRUE)
+            WHERE user_id = ?
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(countsSql)) {
+            ps.setLong(1, userId);
+            ps.setLong(2, userId);
+            ps.setLong(3, userId);
+            ps.setLong(4, userId);
+            ps.executeUpdate();
+        }
+        refreshLatestEntry(conn, userId);
+
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM user_mood_counts WHERE user_id = ?")) {
+            ps.setLong(1, userId);
+            ps.executeUpdate();
+        }
+        String moodsSql = """
+            INSERT INTO user_mood_counts (user_id, mood, mood_count)
+            SELECT user_id, mood, COUNT(*) FROM entries
+            WHERE user_id = ? AND mood IS NOT NULL AND entry_type = 'journal'
+            GROUP BY user_id, mood
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(moodsSql)) {
+            ps.setLong(1, userId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void ensureRow(Connection conn, long userId) throws SQLException {
+        String sql = "MERGE INTO user_stats (user_id) KEY (user_id) VALUES (?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // A concurrent transaction created the row first; the UPDATE that follows will wait for it
+            if (!"23505".equals(e.getSQLState())) {
+                throw e;
+            }
+        }
+    }
+
+    private static void adjustCounter(Connection conn, long userId, String column, int delta) throws SQLException {
+        String sql = "UPDATE user_stats SET " + column + " = " + column + " + ? WHERE user_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, delta);
+            ps.setLong(2, userId);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void adjustMoodCount(Connection conn, long userId, String mood, int delta) throws SQLException {
+        if (mood == null) {
+            return;
+        }
+        // One statement, so two first entries with the same new mood cannot both miss an UPDATE
+        // and both INSERT
+        String mergeSql = """
+            MERGE INTO user_mood_counts t
+            USING (VALUES (CAST(? AS BIGINT), CAST(? AS VARCHAR(50)), CAST(? AS INT))) AS d (user_id, mood, delta)
+            ON t.user_id = d.user_id AND t.mood = d.mood
+            WHEN MATCHED THEN UPDATE SET mood_count = t.mood_count + d.delta
+            WHEN NOT MATCHED AND d.delta > 0 THEN INSERT (user_id, mood, mood_count) VALUES (d.user_id, d.mood, d.delta)
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(mergeSql)) {
+            ps.setLong(1, userId);
+            ps.setString(2, mood);
+            ps.setInt(3, delta);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            // H2 still reports a row inserted by a concurrent transaction that committed while
+            // this one waited for it; the row exists now, so add to it
+            if (!"23505".equals(e.getSQLState())) {
+                throw e;
+            }
+            String updateSql = "UPDATE user_mood_counts SET mood_count = mood_count + ? WHERE user_id = ? AND mood = ?";
+            try (PreparedStatement ps = conn.prepareStatement(updateSql)) {
+                ps.setInt(1, delta);
+                ps.setLong(2, userId);
+                ps.setString(3, mood);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static boolean isLatestEntry(Connection conn, long userId, long entryId) throws SQLException {
+        String sql = "SELECT latest_entry_id FROM user_stats WHERE user_id = ?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getLong("latest_entry_id") == entryId;
+            }
+        }
+    }
+
+    private static void refreshLatestEntry(Connection conn, long userId) throws SQLException {
+        String sql = """
+            UPDATE user_stats SET
+              latest_entry_id = (SELECT id FROM entries WHERE user_id = ? AND entry_type = 'journal'
+                                 ORDER BY created_at DESC, id DESC LIMIT 1),
+              latest_mood = (SELECT mood FROM entries WHERE user_id = ? AND entry_type = 'journal'
+                             ORDER BY created_at DESC, id DESC LIMIT 1)
+            WHERE user_id = ?
+            """;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setLong(1, userId);
+            ps.setLong(2, userId);
+            ps.setLong(3, userId);
+            ps.executeUpdate();
+        }
+    }
+}
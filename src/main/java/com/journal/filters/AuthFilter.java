@@ -1,11 +1,19 @@
 package com.journal.filters;
 
+import com.journal.utils.SessionUtils;
+import com.journal.utils.TokenService;
+
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 
+/**
+ * Lets only signed-in users through to the API. With AUTH_MODE=token the caller is identified
+ * by a signed token (see TokenService) instead of the HttpSession, and the verified user id is
+ * handed to the servlets as a request attribute read by SessionUtils.
+ */
 public class AuthFilter implements Filter {
 
 	@Override
@@ -19,22 +27,40 @@ public class AuthFilter implements Filter {
 
 		String path = req.getRequestURI();
 		boolean isApi = path != null && path.startsWith(req.getContextPath() + "/api/");
-		boolean isAuthFree = path.endsWith("/api/login") || path.endsWith("/api/register");
+		boolean isAuthFree = path.endsWith("/api/login") || path.endsWith("/api/register")
+				|| path.endsWith("/api/logout");
 
 		if (isApi && !isAuthFree) {
-			HttpSession session = req.getSession(false);
-			if (session == null || session.getAttribute("userId") == null) {
-				res.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-				res.setCharacterEncoding("UTF-8");
-				res.setContentType("application/json;charset=UTF-8");
-				res.getWriter().write("{\"message\":\"Authentication required\"}");
-				return;
+			if (TokenService.enabled()) {
+				TokenService.Claims claims = TokenService.verify(TokenService.tokenOf(req));
+				if (claims == null) {
+					unauthorized(res);
+					return;
+				}
+				req.setAttribute(SessionUtils.USER_ID_ATTRIBUTE, claims.getUserId());
+				String renewed = TokenService.renewIfDue(claims);
+				if (renewed != null) {
+					TokenService.setCookie(req, res, renewed);
+				}
+			} else {
+				HttpSession session = req.getSession(false);
+				if (session == null || session.getAttribute("userId") == null) {
+					unauthorized(res);
+					return;
+				}
 			}
 		}
 
 		chain.doFilter(request, response);
 	}
 
+	private static void unauthorized(HttpServletResponse res) throws IOException {
+		res.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+		res.setCharacterEncoding("UTF-8");
+		res.setContentType("application/json;charset=UTF-8");
+		res.getWriter().write("{\"message\":\"Authentication required\"}");
+	}
+
 	@Override
 	public void destroy() { }
 }
@@ -0,0 +1,281 @@
+package com.journal.filters;
+
+import com.journal.utils.LatencyHistogram;
+import com.journal.utils.Settings;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request latency per route, method and status, served by MetricsServlet at /metrics.
+ *
+ * Routes are the servlet mappings, read once at startup, so their number is fixed: a path
+ * under /api/entries/* counts as "/api/entries/*" unless it is a single word that has
+ * answered below 400 before (/api/entries/calendar), and paths no servlet maps count as
+ * "unmatched". Each route keeps a slot array per method indexed by status, so a finished
+ * request finds its LatencyHistogram with two map lookups on strings the container already
+ * holds and an array read; only the first request of a combination allocates. Requests that
+ * go async are recorded when they complete, which costs one listener object.
+ *
+ * At most METRICS_MAX_SERIES combinations are tracked; the rest share an "overflow" series.
+ */
+public class MetricsFilter implements Filter {
+
+	private static final boolean ENABLED = !"false".equalsIgnoreCase(Settings.getString("METRICS_ENABLED", "true"));
+	private static final int MAX_SERIES = Settings.getInt("METRICS_MAX_SERIES", 1000);
+	private static final int MAX_WORD_LENGTH = 32;
+
+	private static final String[] METHODS = { "GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS", "OTHER" };
+	private static final int MIN_STATUS = 100;
+	private static final int STATUS_SLOTS = 501; // 100..599, then one slot for anything else
+
+	private static final Map<String, Route> ROUTES = new ConcurrentHashMap<>();
+	private static final Route UNMATCHED = new Route("unmatched", false);
+	private static final Series OVERFLOW_SERIES = new Series("overflow", "OTHER", 0);
+	private static final AtomicInteger SERIES_COUNT = new AtomicInteger();
+
+	/** One (route, method, status) combination. */
+	public static final class Series {
+		private final String route;
+		private final String method;
+		private final int status;
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		private Series(String route, String method, int status) {
+			this.route = route;
+			this.method = method;
+			this.status = status;
+		}
+
+		public String getRoute() { return route; }
+		public String getMethod() { return method; }
+		public int getStatus() { return status; }
+		public LatencyHistogram getHistogram() { return histogram; }
+	}
+
+	private static final class Route {
+		final String name;
+		final boolean wildcard;
+		final LongAdder inFlight = new LongAdder();
+		final AtomicReferenceArray<AtomicReferenceArray<Series>> byMethod = new AtomicReferenceArray<>(METHODS.length);
+		final Map<String, Route> words = new ConcurrentHashMap<>();
+
+		Route(String name, boolean wildcard) {
+			this.name = name;
+			this.wildcard = wildcard;
+		}
+
+		Series series(int method, int status) {
+			AtomicReferenceArray<Series> slots = byMethod.get(method);
+			if (slots == null) {
+				byMethod.compareAndSet(method, null, new AtomicReferenceArray<>(STATUS_SLOTS));
+				slots = byMethod.get(method);
+			}
+			int slot = status >= MIN_STATUS && status < MIN_STATUS + STATUS_SLOTS - 1 ? status - MIN_STATUS : STATUS_SLOTS - 1;
+			Series series = slots.get(slot);
+			if (series == null) {
+				if (SERIES_COUNT.incrementAndGet() > MAX_SERIES) {
+					SERIES_COUNT.decrementAndGet();
+					return OVERFLOW_SERIES;
+				}
+				if (!slots.compareAndSet(slot, null, new Series(name, METHODS[method], slot == STATUS_SLOTS - 1 ? 0 : status))) {
+					SERIES_COUNT.decrementAndGet();
+				}
+				series = slots.get(slot);
+			}
+			return series;
+		}
+	}
+
+	public static boolean enabled() {
+		return ENABLED;
+	}
+
+	/** Every series recorded so far, overflow last when it has been used. */
+	public static List<Series> series() {
+		List<Series> all = new ArrayList<>();
+		List<Route> routes = new ArrayList<>(ROUTES.values());
+		routes.add(UNMATCHED);
+		for (int r = 0; r < routes.size(); r++) {
+			Route route = routes.get(r);
+			collect(route, all);
+			if (route.wildcard) {
+				route.words.values().forEach(word -> collect(word, all));
+			}
+		}
+		if (OVERFLOW_SERIES.histogram.count() > 0) {
+			all.add(OVERFLOW_SERIES);
+		}
+		return all;
+	}
+
+	/** Requests currently being handled, per route (word sub-routes count under their mapping). */
+	public static Map<String, Long> inFlight() {
+		Map<String, Long> counts = new TreeMap<>();
+		ROUTES.values().forEach(route -> counts.put(route.name, route.inFlight.sum()));
+		counts.put(UNMATCHED.name, UNMATCHED.inFlight.sum());
+		return counts;
+	}
+
+	private static void collect(Route route, List<Series> into) {
+		for (int m = 0; m < METHODS.length; m++) {
+			AtomicReferenceArray<Series> slots = route.byMethod.get(m);
+			if (slots == null) {
+				continue;
+			}
+			for (int s = 0; s < STATUS_SLOTS; s++) {
+				Series series = slots.get(s);
+				if (series != null) {
+					into.add(series);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+		ServletContext context = filterConfig.getServletContext();
+		// Only mappings this filter sees: /api/* covers /api/stats but not /metrics
+		List<String> covered = new ArrayList<>();
+		for (String pattern : context.getFilterRegistration(filterConfig.getFilterName()).getUrlPatternMappings()) {
+			covered.add(pattern.endsWith("/*") ? pattern.substring(0, pattern.length() - 1) : pattern);
+		}
+		for (ServletRegistration registration : context.getServletRegistrations().values()) {
+			for (String mapping : registration.getMappings()) {
+				if (covered.stream().noneMatch(mapping::startsWith)) {
+					continue;
+				}
+				if (mapping.endsWith("/*") && mapping.length() > 2) {
+					ROUTES.putIfAbsent(mapping.substring(0, mapping.length() - 2), new Route(mapping, true));
+				} else if (mapping.startsWith("/") && mapping.length() > 1) {
+					ROUTES.putIfAbsent(mapping, new Route(mapping, false));
+				}
+			}
+		}
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		if (!ENABLED) {
+			chain.doFilter(request, response);
+			return;
+		}
+		HttpServletRequest req = (HttpServletRequest) request;
+		HttpServletResponse res = (HttpServletResponse) response;
+		Route route = ROUTES.getOrDefault(req.getServletPath(), UNMATCHED);
+		long start = System.nanoTime();
+		route.inFlight.increment();
+		boolean async = false;
+		// The container turns an exception into a 500 unless a response already went out
+		int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+		try {
+			chain.doFilter(request, response);
+			async = req.isAsyncStarted();
+			if (async) {
+				req.getAsyncContext().addListener(new Completion(route, req, res, start));
+			}
+			status = res.getStatus();
+		} catch (IOException | ServletException | RuntimeException e) {
+			if (res.isCommitted()) {
+				status = res.getStatus();
+			}
+			throw e;
+		} finally {
+			if (!async) {
+				record(route, req, status, start);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() { }
+
+	private static void record(Route route, HttpServletRequest req, int status, long start) {
+		long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+		route.inFlight.decrement();
+		Route target = route.wildcard ? subRoute(route, req.getPathInfo(), status) : route;
+		target.series(methodIndex(req.getMethod()), status).histogram.record(micros);
+	}
+
+	private static Route subRoute(Route route, String pathInfo, int status) {
+		if (pathInfo == null || pathInfo.length() <= 1) {
+			return route;
+		}
+		Route word = route.words.get(pathInfo);
+		if (word != null) {
+			return word;
+		}
+		// Only words that have been served create a route, so probing paths cannot add series
+		if (status >= 400 || !isWord(pathInfo)) {
+			return route;
+		}
+		String base = route.name.substring(0, route.name.length() - 2);
+		return route.words.computeIfAbsent(pathInfo, p -> new Route(base + p, false));
+	}
+
+	private static boolean isWord(String pathInfo) {
+		if (pathInfo.length() > MAX_WORD_LENGTH + 1) {
+			return false;
+		}
+		for (int i = 1; i < pathInfo.length(); i++) {
+			char c = pathInfo.charAt(i);
+			if ((c < 'a' || c > 'z') && c != '-') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int methodIndex(String method) {
+		switch (method) {
+			case "GET": return 0;
+			case "POST": return 1;
+			case "PUT": return 2;
+			case "DELETE": return 3;
+			case "PATCH": return 4;
+			case "HEAD": return 5;
+			case "OPTIONS": return 6;
+			default: return 7;
+		}
+	}
+
+	private static final class Completion implements AsyncListener {
+		private final Route route;
+		private final HttpServletRequest request;
+		private final HttpServletResponse response;
+		private final long start;
+
+		Completion(Route route, HttpServletRequest request, HttpServletResponse response, long start) {
+			this.route = route;
+			this.request = request;
+			this.response = response;
+			this.start = start;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			record(route, request, response.getStatus(), start);
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) { }
+
+		@Override
+		public void onError(AsyncEvent event) { }
+
+		@Override
+		public void onStartAsync(AsyncEvent event) { }
+	}
+}
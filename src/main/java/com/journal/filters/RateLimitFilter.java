@@ -0,0 +1,228 @@
+package com.journal.filters;
+
+import com.journal.utils.JsonUtils;
+import com.journal.utils.RateLimiter;
+import com.journal.utils.Settings;
+
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Rate limits /api/login and /api/register by client address and by email.
+ *
+ * Every attempt holds a slot from before the servlet, and any password hashing, runs until
+ * it has its answer; a key whose counted and running attempts reach the limit gets 429 with
+ * Retry-After. Logins count only failures (401), so only guessing is slowed down; a
+ * successful login clears its email key, while the address key expires with the window.
+ * Registrations count every attempt.
+ */
+public class RateLimitFilter implements Filter {
+
+	private static final int WINDOW_MS = Settings.getInt("RATE_LIMIT_WINDOW_MS", 10 * 60 * 1000);
+	private static final int MAX_KEYS = Settings.getInt("RATE_LIMIT_MAX_KEYS", 20_000);
+	// Behind a proxy every request comes from the proxy; name the header it puts the client in
+	private static final String CLIENT_IP_HEADER = Settings.getString("RATE_LIMIT_CLIENT_IP_HEADER", "");
+	private static final int MAX_BODY_BYTES = 16 * 1024;
+
+	private static final RateLimiter LOGIN_BY_IP = new RateLimiter("loginByIp",
+			Settings.getInt("RATE_LIMIT_LOGIN_PER_IP", 5), WINDOW_MS, MAX_KEYS);
+	private static final RateLimiter LOGIN_BY_EMAIL = new RateLimiter("loginByEmail",
+			Settings.getInt("RATE_LIMIT_LOGIN_PER_EMAIL", 5), WINDOW_MS, MAX_KEYS);
+	private static final RateLimiter REGISTER_BY_IP = new RateLimiter("registerByIp",
+			Settings.getInt("RATE_LIMIT_REGISTER_PER_IP", 10), WINDOW_MS, MAX_KEYS);
+	private static final RateLimiter REGISTER_BY_EMAIL = new RateLimiter("registerByEmail",
+			Settings.getInt("RATE_LIMIT_REGISTER_PER_EMAIL", 3), WINDOW_MS, MAX_KEYS);
+
+	public static Map<String, Object> getStats() {
+		Map<String, Object> stats = new HashMap<>();
+		for (RateLimiter limiter : new RateLimiter[] { LOGIN_BY_IP, LOGIN_BY_EMAIL, REGISTER_BY_IP, REGISTER_BY_EMAIL }) {
+			Map<String, Object> one = limiter.getStats();
+			stats.put((String) one.get("name"), one);
+		}
+		return stats;
+	}
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException { }
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+			throws IOException, ServletException {
+		HttpServletRequest req = (HttpServletRequest) request;
+		HttpServletResponse res = (HttpServletResponse) response;
+		if (!"POST".equals(req.getMethod())) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		boolean login = req.getServletPath().endsWith("/login");
+		RateLimiter byIp = login ? LOGIN_BY_IP : REGISTER_BY_IP;
+		RateLimiter byEmail = login ? LOGIN_BY_EMAIL : REGISTER_BY_EMAIL;
+
+		// Every attempt holds a slot while the servlet runs, so a burst of parallel guesses cannot
+		// all get in while the first ones are still hashing
+		String ip = clientAddress(req);
+		if (!byIp.reserve(ip)) {
+			reject(res, byIp, ip, login);
+			return;
+		}
+		String email = null;
+		int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+		try {
+			byte[] body = readBody(req);
+			if (body == null) {
+				status = HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+				res.setStatus(status);
+				writeJson(res, "{\"message\":\"Request body too large\"}");
+				return;
+			}
+			CachedBodyRequest wrapped = new CachedBodyRequest(req, body);
+			String candidate = emailOf(wrapped);
+			if (candidate != null && !byEmail.reserve(candidate)) {
+				status = 429;
+				reject(res, byEmail, candidate, login);
+				return;
+			}
+			email = candidate;
+			chain.doFilter(wrapped, response);
+			status = res.getStatus();
+		} finally {
+			// Registrations count every attempt that got through; logins only failed guesses.
+			// A successful login clears its email but not its address: with one valid account an
+			// attacker could otherwise reset the address between guesses at other emails.
+			boolean counts = login ? status == HttpServletResponse.SC_UNAUTHORIZED : status != 429 && status != 413;
+			if (login && status == HttpServletResponse.SC_OK && email != null) {
+				byEmail.reset(email);
+			}
+			byIp.finish(ip, counts);
+			if (email != null) {
+				byEmail.finish(email, counts);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() { }
+
+	private static String clientAddress(HttpServletRequest req) {
+		if (!CLIENT_IP_HEADER.isEmpty()) {
+			String forwarded = req.getHeader(CLIENT_IP_HEADER);
+			if (forwarded != null && !forwarded.isBlank()) {
+				// The proxy appends the address it saw; earlier entries come from the client
+				int comma = forwarded.lastIndexOf(',');
+				return forwarded.substring(comma + 1).trim();
+			}
+		}
+		return req.getRemoteAddr();
+	}
+
+	private static void reject(HttpServletResponse res, RateLimiter limiter, String key, boolean login) throws IOException {
+		res.setStatus(429);
+		res.setHeader("Retry-After", String.valueOf((limiter.retryAfterMs(key) + 999) / 1000));
+		writeJson(res, login
+				? "{\"message\":\"Too many login attempts. Please try again later.\"}"
+				: "{\"message\":\"Too many registration attempts. Please try again later.\"}");
+	}
+
+	private static void writeJson(HttpServletResponse res, String json) throws IOException {
+		res.setCharacterEncoding("UTF-8");
+		res.setContentType("application/json;charset=UTF-8");
+		res.getWriter().write(json);
+	}
+
+	// Null if the body is larger than login or registration ever needs
+	private static byte[] readBody(HttpServletRequest req) throws IOException {
+		if (req.getContentLengthLong() > MAX_BODY_BYTES) {
+			return null;
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, req.getContentLength()));
+		byte[] buffer = new byte[1024];
+		try (InputStream in = req.getInputStream()) {
+			int n;
+			while ((n = in.read(buffer)) > 0) {
+				if (out.size() + n > MAX_BODY_BYTES) {
+					return null;
+				}
+				out.write(buffer, 0, n);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	private static String emailOf(CachedBodyRequest req) {
+		try {
+			Map<String, String> fields = JsonUtils.readStringMap(req.getReader());
+			String email = fields != null ? fields.get("email") : null;
+			return email == null || email.isBlank() ? null : email.trim().toLowerCase(Locale.ROOT);
+		} catch (RuntimeException e) {
+			// Malformed body: the servlet reports it
+			return null;
+		}
+	}
+
+	/** Replays a body the filter already read, as often as it is asked for. */
+	private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+		private final byte[] body;
+
+		CachedBodyRequest(HttpServletRequest request, byte[] body) {
+			super(request);
+			this.body = body;
+		}
+
+		@Override
+		public ServletInputStream getInputStream() {
+			ByteArrayInputStream in = new ByteArrayInputStream(body);
+			return new ServletInputStream() {
+				@Override
+				public int read() {
+					return in.read();
+				}
+
+				@Override
+				public int read(byte[] b, int off, int len) {
+					return in.read(b, off, len);
+				}
+
+				@Override
+				public boolean isFinished() {
+					return in.available() == 0;
+				}
+
+				@Override
+				public boolean isReady() {
+					return true;
+				}
+
+				@Override
+				public void setReadListener(ReadListener listener) {
+					// Everything is in memory already, so there is nothing to wait for
+					try {
+						listener.onAllDataRead();
+					} catch (IOException e) {
+						listener.onError(e);
+					}
+				}
+			};
+		}
+
+		@Override
+		public BufferedReader getReader() {
+			String encoding = getCharacterEncoding();
+			Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+			return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+		}
+	}
+}
@@ -19,7 +19,8 @@ public class SecurityHeadersFilter implements Filter {
 		http.setHeader("Permissions-Policy", "geolocation=(), microphone=(), camera=()");
 		// CSP allowing Google Fonts, Chart.js CDN, inline handlers, and local/media sources
 		http.setHeader("Content-Security-Policy", "default-src 'self'; style-src 'self' https://fonts.googleapis.com; font-src 'self' https://fonts.gstatic.com; script-src 'self' 'unsafe-inline' https://cdn.jsdelivr.net; img-src 'self' data:; media-src 'self' blob: data:; object-src 'none'; frame-ancestors 'none'; base-uri 'self'");
-		// Reduce client caching to ensure fresh assets after deploy
+		// Reduce client caching to ensure fresh assets after deploy. API lists that send an ETag
+		// replace this with "private, no-cache" so the browser can revalidate them (304).
 		http.setHeader("Cache-Control", "no-store, no-cache, must-revalidate, max-age=0");
 		http.setHeader("Pragma", "no-cache");
 		chain.doFilter(request, response);
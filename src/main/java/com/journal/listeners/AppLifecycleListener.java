@@ -0,0 +1,35 @@
+package com.journal.listeners;
+
+import com.journal.dao.DBConnection;
+import com.journal.dao.DbExecutor;
+import com.journal.dao.MoodDAO;
+import com.journal.utils.Log;
+import com.journal.utils.PasswordUtils;
+import com.journal.utils.TokenService;
+
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+public class AppLifecycleListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Time BCrypt on this host now rather than during the first login
+        PasswordUtils.calibrate();
+        // With AUTH_MODE=token, fail the deploy on bad signing keys instead of on the first login
+        TokenService.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // Let requests already handed to DB workers finish, then write out queued mood check-ins
+        DbExecutor.shutdown(10_000);
+        MoodDAO.shutdownWriteQueue();
+        // Background rehashes may still save a hash
+        PasswordUtils.shutdown();
+        // Close pooled connections so a redeploy does not leave the H2 files locked
+        DBConnection.shutdown();
+        // Last, so everything logged while shutting down still gets written
+        Log.shutdown();
+    }
+}
@@ -4,11 +4,17 @@ import java.sql.Date;
 import java.sql.Timestamp;
 
 public class Entry {
+    public static final String TYPE_JOURNAL = "journal";
+    public static final String TYPE_GRATITUDE = "gratitude";
+    // Older clients and exports tag gratitude notes by prefixing the content instead
+    public static final String LEGACY_GRATITUDE_PREFIX = "[gratitude]";
+
     private Long id;
     private Long userId;
     private Date entryDate;
     private String mood;
     private String content;
+    private String entryType;
     private Timestamp createdAt;
 
     public Entry() {}
@@ -38,6 +44,9 @@ public class Entry {
     public String getContent() { return content; }
     public void setContent(String content) { this.content = content; }
     
+    public String getEntryType() { return entryType; }
+    public void setEntryType(String entryType) { this.entryType = entryType; }
+    
     public Timestamp getCreatedAt() { return createdAt; }
     public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
 }
@@ -0,0 +1,23 @@
+package com.journal.models;
+
+import java.util.List;
+
+public class EntryPage {
+    private List<Entry> entries;
+    private String nextCursor;
+
+    public EntryPage() {}
+
+    public EntryPage(List<Entry> entries, String nextCursor) {
+        this.entries = entries;
+        this.nextCursor = nextCursor;
+    }
+
+    // Getters and setters
+    public List<Entry> getEntries() { return entries; }
+    public void setEntries(List<Entry> entries) { this.entries = entries; }
+
+    // Opaque token for the next page, null on the last page
+    public String getNextCursor() { return nextCursor; }
+    public void setNextCursor(String nextCursor) { this.nextCursor = nextCursor; }
+}
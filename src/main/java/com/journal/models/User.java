@@ -1,10 +1,13 @@
 package com.journal.models;
 
+import java.sql.Timestamp;
+
 public class User {
     private Long id;
     private String name;
     private String email;
     private String passwordHash;
+    private Timestamp createdAt;
 
     public User() {}
 
@@ -24,4 +27,6 @@ public class User {
     public void setEmail(String email) { this.email = email; }
     public String getPasswordHash() { return passwordHash; }
     public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+    public Timestamp getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
 }
\ No newline at end of file
@@ -0,0 +1,502 @@
+package com.journal.servlets;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.journal.dao.DbExecutor;
+import com.journal.utils.Log;
+import com.journal.utils.Settings;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.DispatcherType;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Base for servlets whose handlers mostly wait on the database. The container thread only
+ * starts async processing and queues the request on the bounded DbExecutor; doGet, doPost
+ * and the rest then run on a DB worker exactly as they would have synchronously.
+ *
+ * A full queue answers 503 with Retry-After at once. Each endpoint has its own deadline
+ * (ASYNC_TIMEOUT_<NAME>_MS, counted from arrival): a request still queued when it passes is
+ * dropped with a 503; one already running is answered if nothing was sent yet, and what
+ * the handler writes afterwards is discarded. A running GET or HEAD gets the same 503, but
+ * a running write may still commit, so it gets a 504 without Retry-After that says so: a
+ * client retrying it would create the entry or goal twice. Only the worker completes a running request,
+ * because the container recycles the request and response objects on completion.
+ *
+ * A handler that waits on something other than the database (a queued write, say) hands it
+ * to respondWhenDone and returns; the worker moves on and the response is written when the
+ * wait is over.
+ *
+ * When the connector already runs the request on a virtual thread (Java 21, useVirtualThreads)
+ * there is nothing to free, so the handler runs right there instead of on a DB worker, whose
+ * fixed pool would otherwise cap those requests again. The deadline still applies; the busy
+ * 503 does not, and the connection pool's limits bound the load instead.
+ */
+public abstract class AsyncDbServlet extends HttpServlet {
+    private static final Log LOG = Log.get(AsyncDbServlet.class);
+
+    private static final Map<String, Endpoint> ENDPOINTS = new ConcurrentHashMap<>();
+    private static final MethodHandle IS_VIRTUAL = isVirtualHandle();
+    private static final ThreadLocal<Work> CURRENT = new ThreadLocal<>();
+
+    private static final byte[] BUSY = "{\"message\":\"Server is busy, please try again\"}"
+        .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TIMED_OUT = "{\"message\":\"Request timed out, please try again\"}"
+        .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MAY_HAVE_APPLIED = ("{\"message\":\"Request timed out while being processed; "
+        + "the change may have been applied, check before sending it again\"}").getBytes(StandardCharsets.UTF_8);
+
+    private static final class Endpoint {
+        final long timeoutMs;
+        final LongAdder handled = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder expiredQueued = new LongAdder();
+        final LongAdder expiredRunning = new LongAdder();
+
+        Endpoint(long timeoutMs) {
+            this.timeoutMs = timeoutMs;
+        }
+    }
+
+    /** Writes the response once a stage completes; error is null on success. */
+    @FunctionalInterface
+    protected interface Responder<T> {
+        void respond(T value, Throwable error) throws IOException;
+    }
+
+    private final Endpoint endpoint;
+
+    protected AsyncDbServlet(String name, int defaultTimeoutMs) {
+        int timeoutMs = Settings.getInt("ASYNC_TIMEOUT_" + name.toUpperCase() + "_MS", defaultTimeoutMs);
+        this.endpoint = ENDPOINTS.computeIfAbsent(name, n -> new Endpoint(timeoutMs));
+    }
+
+    /** Per endpoint: requests handled, rejected as busy, and deadlines hit while queued or running. */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        ENDPOINTS.forEach((name, e) -> {
+            Map<String, Object> counts = new HashMap<>();
+            counts.put("timeoutMs", e.timeoutMs);
+            counts.put("handled", e.handled.sum());
+            counts.put("rejected", e.rejected.sum());
+            counts.put("expiredQueued", e.expiredQueued.sum());
+            counts.put("expiredRunning", e.expiredRunning.sum());
+            stats.put(name, counts);
+        });
+        return stats;
+    }
+
+    /**
+     * Answers the request when stage completes rather than when the handler returns, so no DB
+     * worker waits for it. The responder runs on a container thread with the stage's value or
+     * its failure, and the handler must not touch the response after calling this. A request
+     * that is not running asynchronously waits here instead.
+     */
+    protected <T> void respondWhenDone(CompletionStage<T> stage, Responder<T> responder) throws IOException {
+        CompletableFuture<T> future = stage.toCompletableFuture();
+        Work work = CURRENT.get();
+        if (work == null || future.isDone()) {
+            T value = null;
+            Throwable error = null;
+            try {
+                value = future.join();
+            } catch (CompletionException | CancellationException e) {
+                error = unwrap(e);
+            }
+            responder.respond(value, error);
+            return;
+        }
+        work.deferred = true;
+        future.whenComplete((value, error) -> work.async.start(() -> work.respond(responder, value, unwrap(error))));
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    // Thread.isVirtual() only exists from Java 21, and the default build targets 17
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class, "isVirtual",
+                MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static boolean onVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /** Requests that should stay on the container thread, such as long downloads. */
+    protected boolean runsAsync(HttpServletRequest request) {
+        return true;
+    }
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        // Error dispatches, and chains with a filter not marked async-supported, stay synchronous
+        if (request.getDispatcherType() != DispatcherType.REQUEST || !request.isAsyncSupported()
+                || !runsAsync(request)) {
+            super.service(request, response);
+            return;
+        }
+        AsyncContext async = request.startAsync(request, response);
+        // Deadlines are ours (see class comment), so the container's own timeout is off
+        async.setTimeout(0);
+        Work work = new Work(async, request, response);
+        if (onVirtualThread()) {
+            work.response.start();
+            work.deadline = DbExecutor.schedule(work::onDeadline, endpoint.timeoutMs);
+            work.handle();
+            return;
+        }
+        try {
+            work.future = DbExecutor.submit(work);
+        } catch (RejectedExecutionException e) {
+            endpoint.rejected.increment();
+            work.response.expire(HttpServletResponse.SC_SERVICE_UNAVAILABLE, BUSY);
+            async.complete();
+            return;
+        }
+        work.deadline = DbExecutor.schedule(work::onDeadline, endpoint.timeoutMs);
+    }
+
+    private final class Work implements Runnable {
+        private final AsyncContext async;
+        private final HttpServletRequest request;
+        final GuardedResponse response;
+        volatile Future<?> future;
+        volatile ScheduledFuture<?> deadline;
+        // Set by respondWhenDone: the responder, not run(), finishes the request
+        boolean deferred;
+
+        Work(AsyncContext async, HttpServletRequest request, HttpServletResponse response) {
+            this.async = async;
+            this.request = request;
+            this.response = new GuardedResponse(response);
+        }
+
+        @Override
+        public void run() {
+            if (!response.start()) {
+                // The deadline answered while this worker was picking the request up
+                async.complete();
+                return;
+            }
+            handle();
+        }
+
+        /** Runs the handler on the current thread; the response must already be started. */
+        void handle() {
+            CURRENT.set(this);
+            try {
+                AsyncDbServlet.super.service(request, response);
+            } catch (ServletException | IOException | RuntimeException e) {
+                failed(e);
+            } finally {
+                CURRENT.remove();
+                if (!deferred) {
+                    done();
+                }
+            }
+        }
+
+        <T> void respond(Responder<T> responder, T value, Throwable error) {
+            try {
+                responder.respond(value, error);
+            } catch (IOException | RuntimeException e) {
+                failed(e);
+            } finally {
+                done();
+            }
+        }
+
+        private void failed(Exception e) {
+            // After the deadline the handler's writes fail by design; anything else is a real error
+            if (!response.expired()) {
+                LOG.error("✗ Error handling " + request.getMethod() + " " + request.getRequestURI()
+                    + ": " + e.getMessage(), e);
+                response.failIfUncommitted(e);
+            }
+        }
+
+        private void done() {
+            ScheduledFuture<?> pending = deadline;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            endpoint.handled.increment();
+            response.finish();
+            async.complete();
+        }
+
+        void onDeadline() {
+            Future<?> queued = future;
+            if (queued != null && DbExecutor.cancel(queued)) {
+                // Never started, so nothing was applied and the client can simply retry
+                endpoint.expiredQueued.increment();
+                response.expire(HttpServletResponse.SC_SERVICE_UNAVAILABLE, TIMED_OUT);
+                async.complete();
+                return;
+            }
+            String method = request.getMethod();
+            boolean safe = "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+            if (safe ? response.expire(HttpServletResponse.SC_SERVICE_UNAVAILABLE, TIMED_OUT)
+                     : response.expire(HttpServletResponse.SC_GATEWAY_TIMEOUT, MAY_HAVE_APPLIED)) {
+                // Still running: the client has its answer, the worker completes when it returns
+                endpoint.expiredRunning.increment();
+            }
+        }
+    }
+
+    /**
+     * Lets the handler write until the deadline answers for it; body writes and that answer take
+     * the same lock so they cannot interleave, and later writes fail with an IOException.
+     */
+    private static final class GuardedResponse extends HttpServletResponseWrapper {
+        private static final int QUEUED = 0;
+        private static final int RUNNING = 1;
+        private static final int DONE = 2;
+        private static final int EXPIRED = 3;
+
+        private final Object lock = new Object();
+        private int state = QUEUED;
+        private PrintWriter writer;
+        private ServletOutputStream stream;
+
+        GuardedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        boolean start() {
+            synchronized (lock) {
+                if (state != QUEUED) {
+                    return false;
+                }
+                state = RUNNING;
+                return true;
+            }
+        }
+
+        boolean expired() {
+            synchronized (lock) {
+                return state == EXPIRED;
+            }
+        }
+
+        void finish() {
+            synchronized (lock) {
+                if (state == RUNNING) {
+                    state = DONE;
+                }
+            }
+        }
+
+        /**
+         * Answers with status unless the handler already finished or started sending; false if it
+         * had finished. Only a 503 carries Retry-After.
+         */
+        boolean expire(int status, byte[] body) {
+            synchronized (lock) {
+                if (state == DONE || state == EXPIRED) {
+                    return false;
+                }
+                state = EXPIRED;
+                HttpServletResponse real = (HttpServletResponse) getResponse();
+                if (real.isCommitted()) {
+                    return true;
+                }
+                try {
+                    real.reset();
+                    real.setStatus(status);
+                    if (status == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+                        real.setHeader("Retry-After", "1");
+                    }
+                    real.setContentType("application/json;charset=UTF-8");
+                    real.setContentLength(body.length);
+                    ServletOutputStream out = real.getOutputStream();
+                    out.write(body);
+                    out.flush();
+                } catch (IOException | IllegalStateException e) {
+                    // Client is gone or the response was already claimed; nothing left to tell it
+                }
+                return true;
+            }
+        }
+
+        void failIfUncommitted(Exception e) {
+            synchronized (lock) {
+                HttpServletResponse real = (HttpServletResponse) getResponse();
+                if (state != RUNNING || real.isCommitted()) {
+                    return;
+                }
+                try {
+                    real.reset();
+                    real.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    real.setContentType("application/json;charset=UTF-8");
+                    real.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
+                } catch (IOException | IllegalStateException ignored) {
+                    // Same as above
+                }
+            }
+        }
+
+        private void ensureWritable() throws IOException {
+            if (state == EXPIRED) {
+                throw new IOException("Response already sent: request deadline passed");
+            }
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            synchronized (lock) {
+                ensureWritable();
+                if (writer == null) {
+                    writer = new PrintWriter(new GuardedWriter(super.getWriter()), false);
+                }
+                return writer;
+            }
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            synchronized (lock) {
+                ensureWritable();
+                if (stream == null) {
+                    stream = new GuardedStream(super.getOutputStream());
+                }
+                return stream;
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            synchronized (lock) {
+                ensureWritable();
+                super.flushBuffer();
+            }
+        }
+
+        private final class GuardedWriter extends Writer {
+            private final Writer out;
+
+            GuardedWriter(Writer out) {
+                this.out = out;
+            }
+
+            @Override
+            public void write(char[] buf, int off, int len) throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.write(buf, off, len);
+                }
+            }
+
+            @Override
+            public void write(String str, int off, int len) throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.write(str, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.close();
+                }
+            }
+        }
+
+        private final class GuardedStream extends ServletOutputStream {
+            private final ServletOutputStream out;
+
+            GuardedStream(ServletOutputStream out) {
+                this.out = out;
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.write(b);
+                }
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.write(b, off, len);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.flush();
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                synchronized (lock) {
+                    ensureWritable();
+                    out.close();
+                }
+            }
+
+            @Override
+            public boolean isReady() {
+                return out.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener listener) {
+                out.setWriteListener(listener);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.journal.servlets;
+
+import com.journal.dao.ChangeNotifier;
+import com.journal.dao.DataVersions;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * ETag / If-None-Match handling for per-user JSON lists.
+ *
+ * The tag is built from the boot epoch, the user, the resource's DataVersions counter and
+ * the query string, so it costs no database work. The version is read before the servlet
+ * queries: a write that lands in between makes the tag older than the body, which only
+ * costs the client one extra download, never a stale 304.
+ *
+ * In token mode the counters only see this node's writes, so nothing is tagged and every
+ * request gets a full response.
+ */
+final class ConditionalGet {
+
+    private ConditionalGet() { }
+
+    /**
+     * Tags the response and lets the browser cache it for revalidation. Returns true when the
+     * client's copy is current; the response is then a finished 304 and the caller must stop.
+     */
+    static boolean notModified(HttpServletRequest request, HttpServletResponse response,
+                               long userId, ChangeNotifier.Resource resource) {
+        if (!ChangeNotifier.seesAllWrites()) {
+            return false;
+        }
+        String query = request.getQueryString();
+        String etag = "W/\"" + DataVersions.epoch() + "-" + userId + "-"
+            + resource.name().toLowerCase() + DataVersions.current(userId, resource)
+            + (query != null ? "-" + Integer.toHexString(query.hashCode()) : "") + "\"";
+        response.setHeader("ETag", etag);
+        // Replaces the filter's no-store: keep a private copy but ask the server every time
+        response.setHeader("Cache-Control", "private, no-cache");
+        if (matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
+        }
+        return false;
+    }
+
+    // Weak comparison, as If-None-Match requires; the header may list several tags
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
@@ -1,13 +1,15 @@
 package com.journal.servlets;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.journal.dao.ChangeNotifier;
 import com.journal.dao.EntryDAO;
 import com.journal.models.Entry;
+import com.journal.models.EntryPage;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 import com.journal.utils.SessionUtils;
 
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
@@ -15,79 +17,322 @@ import java.io.IOException;
 import java.sql.*;
 import java.util.*;
 
-public class EntryServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+public class EntryServlet extends AsyncDbServlet {
+    private static final Log LOG = Log.get(EntryServlet.class);
+
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int EXPORT_BUFFER_SIZE = 8192;
+
+    private final Gson gson = JsonUtils.gson();
     private final EntryDAO entryDAO = new EntryDAO();
 
+    public EntryServlet() {
+        super("entries", 10_000);
+    }
+
+    // An export streams the whole history at the client's pace; it should not hold a DB worker
+    @Override
+    protected boolean runsAsync(HttpServletRequest request) {
+        return !"/export".equals(request.getPathInfo());
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json;charset=UTF-8");
         
-        System.out.println("=== EntryServlet: GET /api/entries ===");
+        LOG.debug("=== EntryServlet: GET /api/entries ===");
         
         // Validate session
         if (!SessionUtils.validateSession(request, response)) {
-            System.err.println("Session validation failed");
+            LOG.debug("Session validation failed");
             return;
         }
         
         Long userId = SessionUtils.getUserId(request);
         if (userId == null) {
-            System.err.println("User ID is null");
+            LOG.debug("User ID is null");
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\":\"User ID is required\"}");
             return;
         }
         
-        System.out.println("Fetching entries for user ID: " + userId);
+        LOG.debug("Fetching entries for user ID: {}", userId);
+
+        String type = request.getParameter("type");
+        if (type != null && !isValidType(type)) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"type must be journal or gratitude\"}");
+            return;
+        }
+
+        String pathInfo = request.getPathInfo();
+        if ("/calendar".equals(pathInfo)) {
+            if (ConditionalGet.notModified(request, response, userId, ChangeNotifier.Resource.ENTRIES)) {
+                return;
+            }
+            writeCalendarMonth(request, response, userId);
+            return;
+        }
+        if ("/export".equals(pathInfo)) {
+            writeExport(request, response, userId, type);
+            return;
+        }
+        if (pathInfo != null && !"/".equals(pathInfo)) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.getWriter().write("{\"message\":\"Not found\"}");
+            return;
+        }
+        if (ConditionalGet.notModified(request, response, userId, ChangeNotifier.Resource.ENTRIES)) {
+            return;
+        }
+
+        if (request.getParameter("from") != null || request.getParameter("to") != null) {
+            writeDateRange(request, response, userId, type);
+            return;
+        }
+
+        // Paginated mode when the client asks for it; the plain list stays for older clients
+        if (request.getParameter("limit") != null || request.getParameter("cursor") != null) {
+            writePage(request, response, userId, type);
+            return;
+        }
 
         try {
-            List<Entry> entries = entryDAO.findByUserId(userId);
-            System.out.println("Found " + entries.size() + " entries");
-            response.getWriter().write(gson.toJson(entries));
+            int count = JsonStream.write(response, gson, out -> entryDAO.writeJsonByUserId(userId, type, out));
+            LOG.debug("Found {} entries", count);
         } catch (SQLException e) {
-            System.err.println("SQL Error fetching entries: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("SQL Error fetching entries: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
         } catch (Exception e) {
-            System.err.println("General error fetching entries: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("General error fetching entries: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
         }
     }
 
+    // GET /api/entries?from=YYYY-MM-DD&to=YYYY-MM-DD (inclusive; either bound may be omitted)
+    private void writeDateRange(HttpServletRequest request, HttpServletResponse response, Long userId, String type)
+            throws IOException {
+        java.sql.Date from;
+        java.sql.Date to;
+        try {
+            String fromParam = request.getParameter("from");
+            String toParam = request.getParameter("to");
+            from = fromParam != null ? java.sql.Date.valueOf(fromParam) : java.sql.Date.valueOf("0001-01-01");
+            to = toParam != null ? java.sql.Date.valueOf(toParam) : java.sql.Date.valueOf("9999-12-31");
+        } catch (IllegalArgumentException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"Invalid date format. Use YYYY-MM-DD\"}");
+            return;
+        }
+
+        try {
+            JsonStream.write(response, gson, out -> entryDAO.writeJsonByUserIdAndDateRange(userId, type, from, to, out));
+        } catch (SQLException e) {
+            LOG.error("SQL Error fetching entry range: " + e.getMessage());
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/entries/calendar?year=2024&month=5 -> {"2024-05-03": ["happy", "calm"], ...}
+    private void writeCalendarMonth(HttpServletRequest request, HttpServletResponse response, Long userId)
+            throws IOException {
+        java.time.YearMonth month;
+        try {
+            month = java.time.YearMonth.of(Integer.parseInt(request.getParameter("year")),
+                                           Integer.parseInt(request.getParameter("month")));
+        } catch (RuntimeException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"year and month (1-12) are required\"}");
+            return;
+        }
+
+        try {
+            Map<String, List<String>> moodsByDay = entryDAO.findMoodsByDay(userId,
+                java.sql.Date.valueOf(month.atDay(1)), java.sql.Date.valueOf(month.atEndOfMonth()));
+            response.getWriter().write(gson.toJson(moodsByDay));
+        } catch (SQLException e) {
+            LOG.error("SQL Error fetching calendar month: " + e.getMessage());
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+
+    // GET /api/entries/export?format=ndjson|csv streams every entry, oldest first, as a download
+    private void writeExport(HttpServletRequest request, HttpServletResponse response, Long userId, String type)
+            throws IOException {
+        String format = request.getParameter("format") != null ? request.getParameter("format") : "ndjson";
+        if (!"ndjson".equals(format) && !"csv".equals(format)) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"format must be ndjson or csv\"}");
+            return;
+        }
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+
+        // No Content-Length: the container sends the body chunked as the buffer fills
+        response.setContentType("csv".equals(format) ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"journal-export." + format + "\"");
+        response.setHeader("Cache-Control", "no-store");
+        response.setHeader("Vary", "Accept-Encoding");
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+        }
+
+        java.io.OutputStream out = response.getOutputStream();
+        if (gzip) {
+            out = new java.util.zip.GZIPOutputStream(out, EXPORT_BUFFER_SIZE);
+        }
+        try (java.io.Writer writer = new java.io.BufferedWriter(
+                new java.io.OutputStreamWriter(out, java.nio.charset.StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE)) {
+            int count;
+            if ("csv".equals(format)) {
+                writer.write("id,date,mood,type,content,created_at\r\n");
+                count = entryDAO.streamByUserId(userId, type, entry -> writeCsvRow(writer, entry));
+            } else {
+                com.google.gson.TypeAdapter<com.google.gson.JsonElement> rows = gson.getAdapter(com.google.gson.JsonElement.class);
+                count = entryDAO.streamByUserId(userId, type, entry -> {
+                    // Keeps null fields, e.g. an entry without a date, so every line has the same keys
+                    com.google.gson.stream.JsonWriter json = gson.newJsonWriter(writer);
+                    json.setSerializeNulls(true);
+                    rows.write(json, toExportJson(entry));
+                    writer.write('\n');
+                });
+            }
+            LOG.info("Exported {} entries as {} for user {}", count, format, userId);
+        } catch (SQLException e) {
+            // Headers are usually gone by now; cutting the stream short tells the client the file is incomplete
+            LOG.error("SQL Error exporting entries: " + e.getMessage());
+            throw new IOException("Export failed", e);
+        }
+    }
+
+    private static com.google.gson.JsonObject toExportJson(Entry entry) {
+        com.google.gson.JsonObject json = new com.google.gson.JsonObject();
+        json.addProperty("id", entry.getId());
+        json.addProperty("date", entry.getEntryDate() != null ? entry.getEntryDate().toString() : null);
+        json.addProperty("mood", entry.getMood());
+        json.addProperty("type", entry.getEntryType());
+        json.addProperty("content", entry.getContent());
+        json.addProperty("createdAt", entry.getCreatedAt() != null
+            ? entry.getCreatedAt().toInstant().toString() : null);
+        return json;
+    }
+
+    private static void writeCsvRow(java.io.Writer writer, Entry entry) throws IOException {
+        writer.write(String.valueOf(entry.getId()));
+        writer.write(',');
+        writer.write(entry.getEntryDate() != null ? entry.getEntryDate().toString() : "");
+        writer.write(',');
+        writeCsvField(writer, entry.getMood());
+        writer.write(',');
+        writeCsvField(writer, entry.getEntryType());
+        writer.write(',');
+        writeCsvField(writer, entry.getContent());
+        writer.write(',');
+        writer.write(entry.getCreatedAt() != null ? entry.getCreatedAt().toInstant().toString() : "");
+        writer.write("\r\n");
+    }
+
+    // RFC 4180 quoting: fields with commas, quotes or line breaks are quoted and quotes doubled
+    private static void writeCsvField(java.io.Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private void writePage(HttpServletRequest request, HttpServletResponse response, Long userId, String type)
+            throws IOException {
+        int limit = DEFAULT_PAGE_SIZE;
+        java.sql.Date afterDate = null;
+        Long afterId = null;
+        try {
+            String limitParam = request.getParameter("limit");
+            if (limitParam != null) {
+                limit = Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(limitParam)));
+            }
+            String cursor = request.getParameter("cursor");
+            if (cursor != null && !cursor.isEmpty()) {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), java.nio.charset.StandardCharsets.UTF_8);
+                int sep = decoded.indexOf(':');
+                // An undated last entry leaves the date part empty
+                afterDate = sep == 0 ? null : java.sql.Date.valueOf(decoded.substring(0, sep));
+                afterId = Long.parseLong(decoded.substring(sep + 1));
+            }
+        } catch (IllegalArgumentException | StringIndexOutOfBoundsException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"Invalid limit or cursor\"}");
+            return;
+        }
+
+        try {
+            // Fetch one extra row to learn whether another page exists
+            List<Entry> entries = entryDAO.findPageByUserId(userId, type, afterDate, afterId, limit + 1);
+            String nextCursor = null;
+            if (entries.size() > limit) {
+                entries = entries.subList(0, limit);
+                Entry last = entries.get(limit - 1);
+                nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    ((last.getEntryDate() != null ? last.getEntryDate().toString() : "") + ":" + last.getId())
+                        .getBytes(java.nio.charset.StandardCharsets.UTF_8));
+            }
+            response.getWriter().write(gson.toJson(new EntryPage(entries, nextCursor)));
+        } catch (SQLException e) {
+            LOG.error("SQL Error fetching entry page: " + e.getMessage());
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json;charset=UTF-8");
         
-        System.out.println("=== EntryServlet: POST /api/entries ===");
+        LOG.debug("=== EntryServlet: POST /api/entries ===");
         
         // Validate session
         if (!SessionUtils.validateSession(request, response)) {
-            System.err.println("Session validation failed");
+            LOG.debug("Session validation failed");
             return;
         }
         
         try {
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             Long userId = SessionUtils.getUserId(request);
             String dateStr = body.get("date");
             String mood = body.get("mood");
             String content = body.get("content");
+            String type = body.get("type");
             
             if (dateStr == null || mood == null || content == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 response.getWriter().write("{\"message\":\"All fields are required\"}");
                 return;
             }
+            if (type != null && !isValidType(type)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"message\":\"type must be journal or gratitude\"}");
+                return;
+            }
+            if (content.startsWith(Entry.LEGACY_GRATITUDE_PREFIX)) {
+                type = Entry.TYPE_GRATITUDE;
+                content = content.substring(Entry.LEGACY_GRATITUDE_PREFIX.length());
+            }
             
             // Trim and validate content
             content = content.trim();
@@ -104,9 +349,10 @@ public class EntryServlet extends HttpServlet {
             entry.setEntryDate(entryDate);
             entry.setMood(mood);
             entry.setContent(content);
+            entry.setEntryType(type != null ? type : Entry.TYPE_JOURNAL);
             
             Long entryId = entryDAO.createEntry(entry);
-            System.out.println("✓ Entry created successfully - ID: " + entryId + ", User: " + userId);
+            LOG.debug("✓ Entry created successfully - ID: {}, User: {}", entryId, userId);
             String jsonResponse = String.format(
                 "{\"message\":\"Entry created successfully\",\"entryId\":%d}",
                 entryId
@@ -117,13 +363,11 @@ public class EntryServlet extends HttpServlet {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\":\"Invalid date format. Use YYYY-MM-DD\"}");
         } catch (SQLException e) {
-            System.err.println("✗ SQL Error creating entry: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("✗ SQL Error creating entry: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
         } catch (Exception e) {
-            System.err.println("✗ General error creating entry: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("✗ General error creating entry: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
         }
@@ -136,19 +380,28 @@ public class EntryServlet extends HttpServlet {
         response.setContentType("application/json;charset=UTF-8");
         
         try {
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             String entryIdStr = body.get("entryId");
             String dateStr = body.get("date");
             String mood = body.get("mood");
             String content = body.get("content");
+            String type = body.get("type");
             
             if (entryIdStr == null || dateStr == null || mood == null || content == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 response.getWriter().write("{\"message\":\"All fields are required\"}");
                 return;
             }
+            if (type != null && !isValidType(type)) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"message\":\"type must be journal or gratitude\"}");
+                return;
+            }
+            if (content.startsWith(Entry.LEGACY_GRATITUDE_PREFIX)) {
+                type = Entry.TYPE_GRATITUDE;
+                content = content.substring(Entry.LEGACY_GRATITUDE_PREFIX.length()).trim();
+            }
             
             Long entryId = Long.parseLong(entryIdStr);
             java.sql.Date entryDate = java.sql.Date.valueOf(dateStr);
@@ -158,6 +411,7 @@ public class EntryServlet extends HttpServlet {
             entry.setEntryDate(entryDate);
             entry.setMood(mood);
             entry.setContent(content);
+            entry.setEntryType(type); // null keeps the stored type
             
             Long userId = SessionUtils.getUserId(request);
             boolean updated = entryDAO.updateEntryOwned(userId, entry);
@@ -214,4 +468,8 @@ public class EntryServlet extends HttpServlet {
             response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
         }
     }
+
+    private static boolean isValidType(String type) {
+        return Entry.TYPE_JOURNAL.equals(type) || Entry.TYPE_GRATITUDE.equals(type);
+    }
 }
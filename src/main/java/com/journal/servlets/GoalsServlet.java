@@ -3,31 +3,37 @@ package com.journal.servlets;
 import java.io.IOException;
 import java.sql.Date;
 import java.sql.SQLException;
-import java.util.List;
 import java.util.Map;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.journal.dao.ChangeNotifier;
 import com.journal.dao.GoalDAO;
 import com.journal.models.Goal;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 import com.journal.utils.SessionUtils;
 
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-public class GoalsServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+public class GoalsServlet extends AsyncDbServlet {
+    private static final Log LOG = Log.get(GoalsServlet.class);
+
+    private final Gson gson = JsonUtils.gson();
     private final GoalDAO goalDAO = new GoalDAO();
 
+    public GoalsServlet() {
+        super("goals", 10_000);
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json;charset=UTF-8");
         
-        System.out.println("=== GoalsServlet: GET /api/goals ===");
+        LOG.debug("=== GoalsServlet: GET /api/goals ===");
         
         // Validate session
         if (!SessionUtils.validateSession(request, response)) {
@@ -41,9 +47,12 @@ public class GoalsServlet extends HttpServlet {
             return;
         }
 
+        if (ConditionalGet.notModified(request, response, userId, ChangeNotifier.Resource.GOALS)) {
+            return;
+        }
+
         try {
-            List<Goal> goals = goalDAO.findByUserId(userId);
-            response.getWriter().write(gson.toJson(goals));
+            JsonStream.write(response, gson, out -> goalDAO.writeJsonByUserId(userId, out));
         } catch (SQLException e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
@@ -56,7 +65,7 @@ public class GoalsServlet extends HttpServlet {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json;charset=UTF-8");
         
-        System.out.println("=== GoalsServlet: POST /api/goals ===");
+        LOG.debug("=== GoalsServlet: POST /api/goals ===");
         
         // Validate session
         if (!SessionUtils.validateSession(request, response)) {
@@ -64,8 +73,7 @@ public class GoalsServlet extends HttpServlet {
         }
         
         try {
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             Long userId = SessionUtils.getUserId(request);
             String title = body.get("goalTitle");
@@ -93,7 +101,7 @@ public class GoalsServlet extends HttpServlet {
             }
             
             Long goalId = goalDAO.createGoal(goal);
-            System.out.println("✓ Goal created successfully - ID: " + goalId);
+            LOG.debug("✓ Goal created successfully - ID: {}", goalId);
             String jsonResponse = String.format(
                 "{\"message\":\"Goal created successfully\",\"goalId\":%d}",
                 goalId
@@ -104,13 +112,11 @@ public class GoalsServlet extends HttpServlet {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\":\"Invalid date format. Use YYYY-MM-DD\"}");
         } catch (SQLException e) {
-            System.err.println("✗ SQL Error creating goal: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("✗ SQL Error creating goal: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
         } catch (Exception e) {
-            System.err.println("✗ General error creating goal: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("✗ General error creating goal: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
         }
@@ -128,8 +134,7 @@ public class GoalsServlet extends HttpServlet {
         }
         
         try {
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             String goalIdStr = body.get("goalId");
             String completedStr = body.get("completed");
@@ -0,0 +1,177 @@
+package com.journal.servlets;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.journal.dao.ChangeNotifier;
+import com.journal.dao.EntryDAO;
+import com.journal.models.Entry;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.SessionUtils;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Gratitude notes: entries of type "gratitude", listed and edited without the client
+ * having to filter or tag regular journal entries.
+ */
+public class GratitudeServlet extends HttpServlet {
+    private static final String GRATITUDE_MOOD = "peaceful";
+
+    private final Gson gson = JsonUtils.gson();
+    private final EntryDAO entryDAO = new EntryDAO();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        Long userId = SessionUtils.getUserId(request);
+        if (userId == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("{\"message\":\"Authentication required\"}");
+            return;
+        }
+
+        if (ConditionalGet.notModified(request, response, userId, ChangeNotifier.Resource.ENTRIES)) {
+            return;
+        }
+
+        try {
+            JsonStream.write(response, gson, out -> entryDAO.writeJsonByUserId(userId, Entry.TYPE_GRATITUDE, out));
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        Long userId = SessionUtils.getUserId(request);
+        if (userId == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("{\"message\":\"Authentication required\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
+            String text = body.get("text") != null ? body.get("text").trim() : "";
+            if (text.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"message\":\"Gratitude text cannot be empty\"}");
+                return;
+            }
+            String dateStr = body.get("date");
+
+            Entry entry = new Entry();
+            entry.setUserId(userId);
+            entry.setEntryDate(java.sql.Date.valueOf(dateStr != null ? LocalDate.parse(dateStr) : LocalDate.now()));
+            entry.setMood(GRATITUDE_MOOD);
+            entry.setContent(text);
+            entry.setEntryType(Entry.TYPE_GRATITUDE);
+
+            Long id = entryDAO.createEntry(entry);
+            response.getWriter().write(String.format(
+                "{\"message\":\"Gratitude saved successfully\",\"id\":%d}", id));
+        } catch (java.time.format.DateTimeParseException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"Invalid date format. Use YYYY-MM-DD\"}");
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+
+    @Override
+    protected void doPut(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        Long userId = SessionUtils.getUserId(request);
+        if (userId == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.getWriter().write("{\"message\":\"Authentication required\"}");
+            return;
+        }
+
+        try {
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
+            String idStr = body.get("id");
+            String text = body.get("text") != null ? body.get("text").trim() : "";
+            if (idStr == null || text.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                response.getWriter().write("{\"message\":\"id and text are required\"}");
+                return;
+            }
+
+            // Keep the note's date and mood; only the text changes
+            Entry existing = entryDAO.findById(Long.parseLong(idStr));
+            if (existing == null || !userId.equals(existing.getUserId())
+                    || !Entry.TYPE_GRATITUDE.equals(existing.getEntryType())) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().write("{\"message\":\"Gratitude not found\"}");
+                return;
+            }
+            existing.setContent(text);
+            if (entryDAO.updateEntryOwned(userId, existing)) {
+                response.getWriter().write("{\"message\":\"Gratitude updated successfully\"}");
+            } else {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().write("{\"message\":\"Gratitude not found\"}");
+            }
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"Invalid gratitude ID format\"}");
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        Long userId = SessionUtils.getUserId(request);
+        String idParam = request.getParameter("id");
+        if (userId == null || idParam == null) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"Gratitude ID is required\"}");
+            return;
+        }
+
+        try {
+            Long id = Long.parseLong(idParam);
+            Entry existing = entryDAO.findById(id);
+            if (existing == null || !userId.equals(existing.getUserId())
+                    || !Entry.TYPE_GRATITUDE.equals(existing.getEntryType())
+                    || !entryDAO.deleteEntryOwned(userId, id)) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().write("{\"message\":\"Gratitude not found\"}");
+                return;
+            }
+            response.getWriter().write("{\"message\":\"Gratitude deleted successfully\"}");
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"Invalid gratitude ID format\"}");
+        } catch (SQLException e) {
+            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.journal.servlets;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.journal.dao.ImportDAO;
+import com.journal.models.Entry;
+import com.journal.models.Goal;
+import com.journal.models.Mood;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
+import com.journal.utils.SessionUtils;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * POST /api/import: bulk import of entries, goals and moods.
+ *
+ * The body is either a JSON array or NDJSON (one object per line) of records tagged with
+ * "kind" ("entry" when omitted, so an NDJSON export can be imported back as is). Records
+ * are parsed and validated one at a time and written in chunks of CHUNK_SIZE, each chunk
+ * in its own transaction, so only one chunk of records is held at a time. The response has
+ * one result per record, in input order; those results do grow with the upload, which is
+ * why it is capped at MAX_RECORDS records.
+ */
+public class ImportServlet extends HttpServlet {
+    private static final Log LOG = Log.get(ImportServlet.class);
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int MAX_RECORDS = 50_000;
+    private static final int MAX_MOOD_LENGTH = 50;
+    private static final int MAX_TITLE_LENGTH = 255;
+
+    private final Gson gson = JsonUtils.gson();
+    private final ImportDAO importDAO = new ImportDAO();
+
+    // Valid records waiting to be written, with their positions in the input
+    private static final class Chunk {
+        final List<Entry> entries = new ArrayList<>();
+        final List<Integer> entryIndexes = new ArrayList<>();
+        final List<Goal> goals = new ArrayList<>();
+        final List<Integer> goalIndexes = new ArrayList<>();
+        final List<Mood> moods = new ArrayList<>();
+        final List<Integer> moodIndexes = new ArrayList<>();
+
+        int size() {
+            return entries.size() + goals.size() + moods.size();
+        }
+
+        void clear() {
+            entries.clear();
+            entryIndexes.clear();
+            goals.clear();
+            goalIndexes.clear();
+            moods.clear();
+            moodIndexes.clear();
+        }
+    }
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        LOG.debug("=== ImportServlet: POST /api/import ===");
+
+        if (!SessionUtils.validateSession(request, response)) {
+            return;
+        }
+        Long userId = SessionUtils.getUserId(request);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Chunk chunk = new Chunk();
+        String fatal = null;
+
+        JsonReader reader = new JsonReader(request.getReader());
+        // Lenient mode accepts several top-level values in a row, which is what NDJSON is
+        reader.setLenient(true);
+        try {
+            boolean array = reader.peek() == JsonToken.BEGIN_ARRAY;
+            if (array) {
+                reader.beginArray();
+            }
+            while (array ? reader.hasNext() : reader.peek() != JsonToken.END_DOCUMENT) {
+                if (results.size() >= MAX_RECORDS) {
+                    fatal = "Too many records; at most " + MAX_RECORDS + " per request";
+                    break;
+                }
+                JsonElement record = JsonParser.parseReader(reader);
+                int index = results.size();
+                results.add(null); // filled in once the record is rejected or its chunk is written
+                String error = addRecord(chunk, index, record);
+                if (error != null) {
+                    results.set(index, result(index, kindOf(record), "error", error));
+                }
+                if (chunk.size() >= CHUNK_SIZE) {
+                    flush(userId, chunk, results);
+                }
+            }
+        } catch (JsonParseException | IllegalStateException | IOException e) {
+            fatal = "Malformed JSON at record " + results.size();
+        }
+        flush(userId, chunk, results);
+
+        int imported = 0;
+        for (Map<String, Object> result : results) {
+            if ("ok".equals(result.get("status"))) {
+                imported++;
+            }
+        }
+        LOG.info("Imported {} of {} records for user {}", imported, results.size(), userId);
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        if (fatal != null) {
+            // Chunks written before the error stay committed; the results say which ones
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            body.put("message", fatal);
+        }
+        body.put("imported", imported);
+        body.put("failed", results.size() - imported);
+        body.put("results", results);
+        // Straight to the response, without another copy of the results as one string
+        gson.toJson(body, response.getWriter());
+    }
+
+    private void flush(Long userId, Chunk chunk, List<Map<String, Object>> results) {
+        if (chunk.size() == 0) {
+            return;
+        }
+        try {
+            importDAO.insertChunk(userId, chunk.entries, chunk.goals, chunk.moods);
+            for (int i = 0; i < chunk.entries.size(); i++) {
+                results.set(chunk.entryIndexes.get(i), ok(chunk.entryIndexes.get(i), "entry", chunk.entries.get(i).getId()));
+            }
+            for (int i = 0; i < chunk.goals.size(); i++) {
+                results.set(chunk.goalIndexes.get(i), ok(chunk.goalIndexes.get(i), "goal", chunk.goals.get(i).getId()));
+            }
+            for (int i = 0; i < chunk.moods.size(); i++) {
+                results.set(chunk.moodIndexes.get(i), ok(chunk.moodIndexes.get(i), "mood", chunk.moods.get(i).getId()));
+            }
+        } catch (SQLException e) {
+            LOG.error("✗ SQL Error importing chunk: " + e.getMessage());
+            String message = "Database error: " + e.getMessage();
+            for (int index : chunk.entryIndexes) {
+                results.set(index, result(index, "entry", "error", message));
+            }
+            for (int index : chunk.goalIndexes) {
+                results.set(index, result(index, "goal", "error", message));
+            }
+            for (int index : chunk.moodIndexes) {
+                results.set(index, result(index, "mood", "error", message));
+            }
+        }
+        chunk.clear();
+    }
+
+    // Validates one record and queues it; returns an error message instead when it is invalid
+    private String addRecord(Chunk chunk, int index, JsonElement record) {
+        if (!record.isJsonObject()) {
+            return "Record must be a JSON object";
+        }
+        JsonObject json = record.getAsJsonObject();
+        try {
+            switch (kindOf(record)) {
+                case "entry": {
+                    String date = string(json, "date");
+                    String mood = string(json, "mood");
+                    String content = string(json, "content");
+                    String type = string(json, "type");
+                    if (date == null || mood == null || content == null || content.trim().isEmpty()) {
+                        return "date, mood and content are required";
+                    }
+                    if (mood.length() > MAX_MOOD_LENGTH) {
+                        return "mood is longer than " + MAX_MOOD_LENGTH + " characters";
+                    }
+                    if (type != null && !Entry.TYPE_JOURNAL.equals(type) && !Entry.TYPE_GRATITUDE.equals(type)) {
+                        return "type must be journal or gratitude";
+                    }
+                    // Same as EntryServlet: a legacy prefix makes it a gratitude note
+                    content = content.trim();
+                    if (content.startsWith(Entry.LEGACY_GRATITUDE_PREFIX)) {
+                        type = Entry.TYPE_GRATITUDE;
+                        content = content.substring(Entry.LEGACY_GRATITUDE_PREFIX.length()).trim();
+                        if (content.isEmpty()) {
+                            return "date, mood and content are required";
+                        }
+                    }
+                    Entry entry = new Entry();
+                    entry.setEntryDate(parseDate(date));
+                    entry.setMood(mood);
+                    entry.setContent(content);
+                    entry.setEntryType(type != null ? type : Entry.TYPE_JOURNAL);
+                    chunk.entries.add(entry);
+                    chunk.entryIndexes.add(index);
+                    return null;
+                }
+                case "goal": {
+                    String title = string(json, "title");
+                    if (title == null || title.trim().isEmpty()) {
+                        return "title is required";
+                    }
+                    if (title.trim().length() > MAX_TITLE_LENGTH) {
+                        return "title is longer than " + MAX_TITLE_LENGTH + " characters";
+                    }
+                    String description = string(json, "description");
+                    String targetDate = string(json, "targetDate");
+                    Goal goal = new Goal();
+                    goal.setTitle(title.trim());
+                    goal.setDescription(description != null ? description.trim() : null);
+                    if (targetDate != null && !targetDate.isEmpty()) {
+                        goal.setTargetDate(parseDate(targetDate));
+                    }
+                    goal.setCompleted(json.has("completed") && !json.get("completed").isJsonNull()
+                        && json.get("completed").getAsBoolean());
+                    chunk.goals.add(goal);
+                    chunk.goalIndexes.add(index);
+                    return null;
+                }
+                case "mood": {
+                    String mood = string(json, "mood");
+                    if (mood == null || mood.trim().isEmpty()) {
+                        return "mood is required";
+                    }
+                    if (mood.length() > MAX_MOOD_LENGTH) {
+                        return "mood is longer than " + MAX_MOOD_LENGTH + " characters";
+                    }
+                    String loggedAt = string(json, "loggedAt");
+                    Mood m = new Mood();
+                    m.setMood(mood);
+                    if (loggedAt != null) {
+                        m.setLoggedAt(parseTimestamp(loggedAt));
+                    }
+                    chunk.moods.add(m);
+                    chunk.moodIndexes.add(index);
+                    return null;
+                }
+                default:
+                    return "kind must be entry, goal or mood";
+            }
+        } catch (IllegalArgumentException e) {
+            return "Invalid date format. Use YYYY-MM-DD, or ISO-8601 for loggedAt";
+        } catch (UnsupportedOperationException | IllegalStateException e) {
+            return "Invalid field value";
+        }
+    }
+
+    private static String kindOf(JsonElement record) {
+        if (!record.isJsonObject()) {
+            return null;
+        }
+        JsonElement kind = record.getAsJsonObject().get("kind");
+        if (kind == null || kind.isJsonNull()) {
+            return "entry";
+        }
+        return kind.isJsonPrimitive() ? kind.getAsString() : "";
+    }
+
+    private static String string(JsonObject json, String name) {
+        JsonElement value = json.get(name);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+
+    private static java.sql.Date parseDate(String value) {
+        return java.sql.Date.valueOf(value);
+    }
+
+    // Accepts an offset ("2024-05-03T08:15:00Z") or a local date-time in the server's zone
+    private static Timestamp parseTimestamp(String value) {
+        try {
+            return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+        } catch (DateTimeParseException e) {
+            try {
+                return Timestamp.valueOf(LocalDateTime.parse(value));
+            } catch (DateTimeParseException e2) {
+                throw new IllegalArgumentException(e2);
+            }
+        }
+    }
+
+    private static Map<String, Object> ok(int index, String kind, Long id) {
+        Map<String, Object> result = result(index, kind, "ok", null);
+        result.put("id", id);
+        return result;
+    }
+
+    private static Map<String, Object> result(int index, String kind, String status, String message) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", index);
+        if (kind != null) {
+            result.put("kind", kind);
+        }
+        result.put("status", status);
+        if (message != null) {
+            result.put("message", message);
+        }
+        return result;
+    }
+}
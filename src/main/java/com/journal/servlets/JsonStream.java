@@ -0,0 +1,48 @@
+package com.journal.servlets;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.sql.SQLException;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import com.journal.dao.JsonRowWriter;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Runs a DAO writeJson* call against the response, so a list goes from the ResultSet to
+ * the client without model objects or a response String.
+ */
+final class JsonStream {
+    private static final int BUFFER_SIZE = 8192;
+
+    @FunctionalInterface
+    interface Body {
+        int write(JsonRowWriter out) throws SQLException, IOException;
+    }
+
+    private JsonStream() { }
+
+    /**
+     * Returns the number of rows written. A SQLException raised before anything reached the
+     * client discards the partial output and is rethrown, so the caller can still answer
+     * with an error status; once the response is committed it can only be cut short.
+     */
+    static int write(HttpServletResponse response, Gson gson, Body body) throws SQLException, IOException {
+        BufferedWriter buffer = new BufferedWriter(response.getWriter(), BUFFER_SIZE);
+        JsonWriter json = gson.newJsonWriter(buffer);
+        int count;
+        try {
+            count = body.write(new JsonRowWriter(json, gson));
+        } catch (SQLException e) {
+            if (response.isCommitted()) {
+                throw new IOException("Response failed after it was committed", e);
+            }
+            response.resetBuffer();
+            throw e;
+        }
+        json.flush();
+        return count;
+    }
+}
@@ -1,16 +1,16 @@
 package com.journal.servlets;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
-import com.journal.dao.DBConnection;
+import com.journal.dao.UserDAO;
+import com.journal.models.User;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 import com.journal.utils.PasswordUtils;
+import com.journal.utils.TokenService;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -19,10 +19,10 @@ import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 
 public class LoginServlet extends HttpServlet {
-    private final Gson gson = new Gson();
-    private static final java.util.concurrent.ConcurrentHashMap<String, java.util.Deque<Long>> ATTEMPTS = new java.util.concurrent.ConcurrentHashMap<>();
-    private static final int MAX_ATTEMPTS = 5;
-    private static final long WINDOW_MS = 10 * 60 * 1000L; // 10 minutes
+    private static final Log LOG = Log.get(LoginServlet.class);
+
+    // Failed attempts are limited per address and per account by RateLimitFilter
+    private final UserDAO userDAO = new UserDAO();
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
@@ -31,36 +31,14 @@ public class LoginServlet extends HttpServlet {
         response.setContentType("application/json;charset=UTF-8");
         
         try {
-            System.out.println("=== LoginServlet: POST /api/login ===");
+            LOG.debug("=== LoginServlet: POST /api/login ===");
             
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             String email = body.get("email");
             String password = body.get("password");
             
-            System.out.println("Login attempt for email: " + email);
-            
-            // Simple rate limiting by client IP
-            String clientKey = request.getRemoteAddr();
-            long now = System.currentTimeMillis();
-            ATTEMPTS.compute(clientKey, (k, q) -> {
-                if (q == null) q = new java.util.ArrayDeque<>();
-                // purge old attempts
-                while (!q.isEmpty() && now - q.peekFirst() > WINDOW_MS) {
-                    q.pollFirst();
-                }
-                if (q.size() >= MAX_ATTEMPTS) {
-                    return q; // will be handled below
-                }
-                return q;
-            });
-            java.util.Deque<Long> queue = ATTEMPTS.get(clientKey);
-            if (queue.size() >= MAX_ATTEMPTS) {
-                response.setStatus(429);
-                response.getWriter().write("{\"message\":\"Too many login attempts. Please try again later.\"}");
-                return;
-            }
+            LOG.debug("Login attempt for email: {}", email);
             
             if (email == null || password == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -68,73 +46,67 @@ public class LoginServlet extends HttpServlet {
                 return;
             }
             
-            // Validate user credentials
-            String sql = "SELECT id, name, email, password_hash FROM users WHERE email = ?";
-            try (Connection conn = DBConnection.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, email);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        System.out.println("User found in database: " + email);
-                        String hashedPassword = rs.getString("password_hash");
-                        System.out.println("Verifying password...");
-                        boolean passwordMatch = PasswordUtils.verifyPassword(password, hashedPassword);
-                        System.out.println("Password match: " + passwordMatch);
-                        
-                        if (passwordMatch) {
-                            // reset attempts on success
-                            java.util.Deque<Long> q = ATTEMPTS.get(clientKey);
-                            if (q != null) q.clear();
-                            // Login successful - Prevent session fixation by invalidating any existing session
-                            HttpSession existing = request.getSession(false);
-                            if (existing != null) {
-                                existing.invalidate();
-                            }
-                            HttpSession session = request.getSession(true);
-                            session.setAttribute("userId", rs.getLong("id"));
-                            session.setAttribute("username", rs.getString("name"));
-                            session.setAttribute("email", rs.getString("email"));
-                            
-                            // Set session timeout to 30 minutes
-                            session.setMaxInactiveInterval(30 * 60);
-                            
-                            // Create response JSON manually to avoid type issues
-                            Long userId = rs.getLong("id");
-                            String userName = rs.getString("name");
-                            String userEmail = rs.getString("email");
-                            
-                            String jsonResponse = String.format(
-                                "{\"message\":\"Login successful\",\"userId\":%d,\"username\":\"%s\",\"email\":\"%s\"}",
-                                userId,
-                                userName.replace("\"", "\\\""),
-                                userEmail.replace("\"", "\\\"")
-                            );
-                            System.out.println("✓ Login successful for: " + email);
-                            response.getWriter().write(jsonResponse);
-                        } else {
-                            System.err.println("✗ Password verification failed for: " + email);
-                            // record failed attempt
-                            ATTEMPTS.compute(clientKey, (k, q) -> {
-                                if (q == null) q = new java.util.ArrayDeque<>();
-                                q.addLast(System.currentTimeMillis());
-                                return q;
-                            });
-                            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                            response.getWriter().write("{\"message\":\"Invalid credentials\"}");
-                        }
+            // Validate user credentials. No connection is held while BCrypt runs: verifying
+            // takes far longer than the lookup, and a login burst holding connections through
+            // it starved every other request of the pool. The account comes from the user cache,
+            // the hash from the database, so a changed password stops working everywhere.
+            User user = userDAO.findForLogin(email);
+            Long userId = user != null ? user.getId() : null;
+            String userName = user != null ? user.getName() : null;
+            String userEmail = user != null ? user.getEmail() : null;
+            String hashedPassword = user != null ? user.getPasswordHash() : null;
+
+            if (userId != null) {
+                boolean passwordMatch = PasswordUtils.verifyPassword(password, hashedPassword);
+                
+                if (passwordMatch) {
+                    // Hashes made at an older cost are upgraded in the background
+                    long id = userId;
+                    String storedHash = hashedPassword;
+                    PasswordUtils.rehashIfNeeded(password, storedHash,
+                        newHash -> userDAO.replacePasswordHash(id, storedHash, newHash));
+                    if (TokenService.enabled()) {
+                        // Stateless: the signed token in the cookie is all any node needs
+                        TokenService.setCookie(request, response, TokenService.issue(userId));
                     } else {
-                        System.err.println("✗ User not found in database: " + email);
-                        // record failed attempt
-                        ATTEMPTS.compute(clientKey, (k, q) -> {
-                            if (q == null) q = new java.util.ArrayDeque<>();
-                            q.addLast(System.currentTimeMillis());
-                            return q;
-                        });
-                        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                        response.getWriter().write("{\"message\":\"Invalid credentials\"}");
+                        // Login successful - Prevent session fixation by invalidating any existing session
+                        HttpSession existing = request.getSession(false);
+                        if (existing != null) {
+                            existing.invalidate();
+                        }
+                        HttpSession session = request.getSession(true);
+                        session.setAttribute("userId", userId);
+                        session.setAttribute("username", userName);
+                        session.setAttribute("email", userEmail);
+
+                        // Set session timeout to 30 minutes
+                        session.setMaxInactiveInterval(30 * 60);
                     }
+                    
+                    // Create response JSON manually to avoid type issues
+                    String jsonResponse = String.format(
+                        "{\"message\":\"Login successful\",\"userId\":%d,\"username\":\"%s\",\"email\":\"%s\"}",
+                        userId,
+                        userName.replace("\"", "\\\""),
+                        userEmail.replace("\"", "\\\"")
+                    );
+                    LOG.debug("✓ Login successful for user {}", userId);
+                    response.getWriter().write(jsonResponse);
+                } else {
+                    LOG.info("Login failed for user {}: wrong password", userId);
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().write("{\"message\":\"Invalid credentials\"}");
                 }
+            } else {
+                LOG.info("Login failed: no such user");
+                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                response.getWriter().write("{\"message\":\"Invalid credentials\"}");
             }
+        } catch (RejectedExecutionException e) {
+            // Too many passwords hashing at once; the client can try again shortly
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write("{\"message\":\"Server is busy, please try again\"}");
         } catch (SQLException e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
@@ -0,0 +1,44 @@
+package com.journal.servlets;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import com.journal.utils.TokenService;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+public class LogoutServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+
+        if (TokenService.enabled()) {
+            // Clear the cookie even when the token in it is no longer valid
+            TokenService.clearCookie(request, response);
+            TokenService.Claims claims = TokenService.verify(TokenService.tokenOf(request));
+            if (claims != null) {
+                try {
+                    TokenService.revoke(claims);
+                } catch (SQLException e) {
+                    // Revoked on this node only
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
+                    return;
+                }
+            }
+        } else {
+            HttpSession session = request.getSession(false);
+            if (session != null) {
+                session.invalidate();
+            }
+        }
+        response.getWriter().write("{\"message\":\"Logged out\"}");
+    }
+}
@@ -0,0 +1,203 @@
+package com.journal.servlets;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import com.journal.dao.DBConnection;
+import com.journal.dao.DbExecutor;
+import com.journal.dao.MoodDAO;
+import com.journal.dao.SqlStats;
+import com.journal.dao.UserDAO;
+import com.journal.filters.MetricsFilter;
+import com.journal.filters.RateLimitFilter;
+import com.journal.utils.LatencyHistogram;
+import com.journal.utils.Log;
+import com.journal.utils.PasswordUtils;
+import com.journal.utils.Settings;
+import com.journal.utils.TokenService;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * GET /metrics in the Prometheus text format: the request histograms kept by MetricsFilter,
+ * and every component's getStats() numbers as gauges named journal_{component}_{key}. Nested
+ * stats (one map per cache, limiter or endpoint) get the inner key as a name label.
+ *
+ * It sits outside /api/* so AuthFilter does not apply. When METRICS_TOKEN is set, scrapers have
+ * to send it as a Bearer token; METRICS_ENABLED=false turns the endpoint off.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final String TOKEN = Settings.getString("METRICS_TOKEN", "");
+
+    // Power-of-two bucket edges in µs (128 µs .. 33.5 s), which LatencyHistogram counts exactly
+    private static final long[] BUCKETS_MICROS = new long[19];
+    static {
+        for (int i = 0; i < BUCKETS_MICROS.length; i++) {
+            BUCKETS_MICROS[i] = 128L << i;
+        }
+    }
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+    private static final Map<String, Supplier<Map<String, Object>>> COMPONENTS = new LinkedHashMap<>();
+    static {
+        COMPONENTS.put("db_pool", DBConnection::getPoolStats);
+        COMPONENTS.put("db_executor", DbExecutor::getStats);
+        COMPONENTS.put("sql", SqlStats::getStats);
+        COMPONENTS.put("async_endpoint", AsyncDbServlet::getStats);
+        COMPONENTS.put("mood_write_queue", MoodDAO::getWriteQueueStats);
+        COMPONENTS.put("stats_cache", StatsServlet::getCacheStats);
+        COMPONENTS.put("user_cache", UserDAO::getCacheStats);
+        COMPONENTS.put("password_hashing", PasswordUtils::getHashingStats);
+        COMPONENTS.put("rate_limit", RateLimitFilter::getStats);
+        COMPONENTS.put("auth_tokens", TokenService::getStats);
+        COMPONENTS.put("log", Log::getStats);
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!MetricsFilter.enabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!TOKEN.isEmpty() && !authorized(request.getHeader("Authorization"))) {
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return;
+        }
+        StringBuilder out = new StringBuilder(16 * 1024);
+        writeRequests(out);
+        for (Map.Entry<String, Supplier<Map<String, Object>>> component : COMPONENTS.entrySet()) {
+            Map<String, List<String>> families = new TreeMap<>();
+            flatten("journal_" + component.getKey(), null, component.getValue().get(), families);
+            families.forEach((name, samples) -> {
+                out.append("# TYPE ").append(name).append(" gauge\n");
+                samples.forEach(out::append);
+            });
+        }
+        response.setContentType("text/plain; version=0.0.4; charset=utf-8");
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(out.toString());
+    }
+
+    private static boolean authorized(String header) {
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        byte[] given = header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(given, TOKEN.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeRequests(StringBuilder out) {
+        List<MetricsFilter.Series> series = MetricsFilter.series();
+        List<String> labels = new ArrayList<>(series.size());
+        for (MetricsFilter.Series s : series) {
+            labels.add("route=\"" + escape(s.getRoute()) + "\",method=\"" + s.getMethod()
+                    + "\",status=\"" + s.getStatus() + "\"");
+        }
+
+        out.append("# HELP journal_http_requests_total Requests answered, by route, method and status.\n");
+        out.append("# TYPE journal_http_requests_total counter\n");
+        for (int i = 0; i < series.size(); i++) {
+            out.append("journal_http_requests_total{").append(labels.get(i)).append("} ")
+                    .append(series.get(i).getHistogram().count()).append('\n');
+        }
+
+        out.append("# HELP journal_http_request_duration_seconds Time from the first filter until the response is complete.\n");
+        out.append("# TYPE journal_http_request_duration_seconds histogram\n");
+        for (int i = 0; i < series.size(); i++) {
+            LatencyHistogram histogram = series.get(i).getHistogram();
+            long[] cumulative = histogram.cumulativeCounts(BUCKETS_MICROS);
+            for (int b = 0; b < BUCKETS_MICROS.length; b++) {
+                out.append("journal_http_request_duration_seconds_bucket{").append(labels.get(i))
+                        .append(",le=\"").append(seconds(BUCKETS_MICROS[b])).append("\"} ").append(cumulative[b]).append('\n');
+            }
+            long count = cumulative[BUCKETS_MICROS.length];
+            out.append("journal_http_request_duration_seconds_bucket{").append(labels.get(i))
+                    .append(",le=\"+Inf\"} ").append(count).append('\n');
+            out.append("journal_http_request_duration_seconds_sum{").append(labels.get(i)).append("} ")
+                    .append(seconds(histogram.sumMicros())).append('\n');
+            out.append("journal_http_request_duration_seconds_count{").append(labels.get(i)).append("} ")
+                    .append(count).append('\n');
+        }
+
+        out.append("# HELP journal_http_request_duration_quantile_seconds Latency quantiles since startup, to within 12.5%.\n");
+        out.append("# TYPE journal_http_request_duration_quantile_seconds gauge\n");
+        for (int i = 0; i < series.size(); i++) {
+            LatencyHistogram histogram = series.get(i).getHistogram();
+            for (double quantile : QUANTILES) {
+                out.append("journal_http_request_duration_quantile_seconds{").append(labels.get(i))
+                        .append(",quantile=\"").append(quantile).append("\"} ")
+                        .append(seconds(histogram.valueAtQuantile(quantile))).append('\n');
+            }
+        }
+
+        out.append("# HELP journal_http_request_duration_max_seconds Slowest request since startup.\n");
+        out.append("# TYPE journal_http_request_duration_max_seconds gauge\n");
+        for (int i = 0; i < series.size(); i++) {
+            out.append("journal_http_request_duration_max_seconds{").append(labels.get(i)).append("} ")
+                    .append(seconds(series.get(i).getHistogram().maxMicros())).append('\n');
+        }
+
+        out.append("# HELP journal_http_requests_in_flight Requests being handled, per servlet mapping.\n");
+        out.append("# TYPE journal_http_requests_in_flight gauge\n");
+        MetricsFilter.inFlight().forEach((route, count) -> out.append("journal_http_requests_in_flight{route=\"")
+                .append(escape(route)).append("\"} ").append(count).append('\n'));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void flatten(String prefix, String name, Map<String, Object> stats, Map<String, List<String>> families) {
+        stats.forEach((key, value) -> {
+            if (value instanceof Map) {
+                flatten(prefix, name == null ? key : name + "." + key, (Map<String, Object>) value, families);
+                return;
+            }
+            String number;
+            if (value instanceof Number) {
+                number = value.toString();
+            } else if (value instanceof Boolean) {
+                number = (Boolean) value ? "1" : "0";
+            } else {
+                return; // modes and levels are configuration, not measurements
+            }
+            String metric = prefix + "_" + snakeCase(key);
+            String labels = name == null ? "" : "{name=\"" + escape(name) + "\"}";
+            families.computeIfAbsent(metric, m -> new ArrayList<>()).add(metric + labels + " " + number + "\n");
+        });
+    }
+
+    private static String snakeCase(String key) {
+        StringBuilder name = new StringBuilder(key.length() + 8);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isUpperCase(c)) {
+                name.append('_').append(Character.toLowerCase(c));
+            } else if (Character.isLetterOrDigit(c) && c < 128) {
+                name.append(c);
+            } else {
+                name.append('_');
+            }
+        }
+        return name.toString();
+    }
+
+    private static String seconds(long micros) {
+        return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
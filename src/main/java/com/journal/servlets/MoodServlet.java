@@ -2,23 +2,34 @@ package com.journal.servlets;
 
 import java.io.IOException;
 import java.sql.SQLException;
-import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.journal.dao.ChangeNotifier;
 import com.journal.dao.MoodDAO;
 import com.journal.models.Mood;
+import com.journal.utils.JsonUtils;
 
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-public class MoodServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+public class MoodServlet extends AsyncDbServlet {
+    private static final int WRITE_TIMEOUT_SECONDS = 10;
+
+    private final Gson gson = JsonUtils.gson();
     private final MoodDAO moodDAO = new MoodDAO();
 
+    // Longer than WRITE_TIMEOUT_SECONDS so a batched check-in still gets its own answer
+    public MoodServlet() {
+        super("moods", 15_000);
+    }
+
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
             throws ServletException, IOException {
@@ -32,8 +43,10 @@ public class MoodServlet extends HttpServlet {
                 response.getWriter().write("{\"message\":\"Authentication required\"}");
                 return;
             }
-            List<Mood> moods = moodDAO.findByUserId(userId);
-            response.getWriter().write(gson.toJson(moods));
+            if (ConditionalGet.notModified(request, response, userId, ChangeNotifier.Resource.MOODS)) {
+                return;
+            }
+            JsonStream.write(response, gson, out -> moodDAO.writeJsonByUserId(userId, out));
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\":\"Invalid user ID format\"}");
@@ -50,8 +63,7 @@ public class MoodServlet extends HttpServlet {
         response.setContentType("application/json;charset=UTF-8");
         
         try {
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             Long userId = com.journal.utils.SessionUtils.getUserId(request);
             if (userId == null) {
@@ -69,22 +81,44 @@ public class MoodServlet extends HttpServlet {
             mood.setUserId(userId);
             mood.setMood(moodType);
             
-            Long moodId = moodDAO.createMood(mood);
-            String jsonResponse = String.format(
-                "{\"message\":\"Mood recorded successfully\",\"moodId\":%d}",
-                moodId
-            );
-            response.getWriter().write(jsonResponse);
-            
+            CompletableFuture<Long> pending = moodDAO.submitMood(mood);
+            String key = UUID.randomUUID().toString();
+            if (MoodDAO.getWriteMode() == MoodDAO.WriteMode.ACCEPTED) {
+                // Queued for the next group commit; the id is not known yet
+                accepted(response, key);
+                return;
+            }
+            // The worker is released while the batch commits; a slow commit still gets an answer
+            respondWhenDone(pending.copy().orTimeout(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS), (moodId, error) -> {
+                if (error instanceof TimeoutException) {
+                    // Still queued and will be committed, so a retry would record it twice
+                    accepted(response, key);
+                } else if (error != null) {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                    response.getWriter().write("{\"message\":\"Database error: " + error.getMessage() + "\"}");
+                } else {
+                    response.getWriter().write(String.format(
+                        "{\"message\":\"Mood recorded successfully\",\"moodId\":%d}", moodId));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Write-behind queue is full or shut down; nothing was queued, so a retry is safe
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write("{\"message\":\"Too many check-ins right now, please retry\"}");
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
             response.getWriter().write("{\"message\":\"Invalid user ID format\"}");
-        } catch (SQLException e) {
-            response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-            response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
         }
     }
+
+    // 202: the check-in is queued and will be written; the client must not send it again.
+    // The key is made here, not taken from the client: nothing deduplicates on it.
+    private static void accepted(HttpServletResponse response, String key) throws IOException {
+        response.setStatus(HttpServletResponse.SC_ACCEPTED);
+        response.getWriter().write("{\"message\":\"Mood accepted\",\"key\":\"" + key + "\"}");
+    }
 }
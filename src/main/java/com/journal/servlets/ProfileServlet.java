@@ -3,13 +3,18 @@ package com.journal.servlets;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.journal.dao.ChangeNotifier;
 import com.journal.dao.DBConnection;
+import com.journal.dao.UserDAO;
+import com.journal.models.User;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 import com.journal.utils.PasswordUtils;
 
 import jakarta.servlet.ServletException;
@@ -18,7 +23,10 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 public class ProfileServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+    private static final Log LOG = Log.get(ProfileServlet.class);
+
+    private final Gson gson = JsonUtils.gson();
+    private final UserDAO userDAO = new UserDAO();
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -26,7 +34,7 @@ public class ProfileServlet extends HttpServlet {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json;charset=UTF-8");
         
-        System.out.println("=== ProfileServlet: GET /api/profile ===");
+        LOG.debug("=== ProfileServlet: GET /api/profile ===");
         
         // Require authenticated session and use server-side userId
         Long sessionUserId = com.journal.utils.SessionUtils.getUserId(request);
@@ -35,26 +43,22 @@ public class ProfileServlet extends HttpServlet {
             response.getWriter().write("{\"message\":\"Authentication required\"}");
             return;
         }
+        if (ConditionalGet.notModified(request, response, sessionUserId, ChangeNotifier.Resource.PROFILE)) {
+            return;
+        }
 
         try {
-            Long userId = sessionUserId;
-            String sql = "SELECT id, name, email, created_at FROM users WHERE id = ?";
-            try (Connection conn = DBConnection.getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        response.getWriter().write(gson.toJson(Map.of(
-                            "id", rs.getLong("id"),
-                            "name", rs.getString("name"),
-                            "email", rs.getString("email"),
-                            "createdAt", rs.getTimestamp("created_at")
-                        )));
-                    } else {
-                        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                        response.getWriter().write("{\"message\":\"User not found\"}");
-                    }
-                }
+            User user = userDAO.findById(sessionUserId);
+            if (user != null) {
+                Map<String, Object> profile = new HashMap<>();
+                profile.put("id", user.getId());
+                profile.put("name", user.getName());
+                profile.put("email", user.getEmail());
+                profile.put("createdAt", user.getCreatedAt());
+                response.getWriter().write(gson.toJson(profile));
+            } else {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                response.getWriter().write("{\"message\":\"User not found\"}");
             }
         } catch (NumberFormatException e) {
             response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -72,8 +76,7 @@ public class ProfileServlet extends HttpServlet {
         response.setContentType("application/json;charset=UTF-8");
         
         try {
-            Map<String, String> body = gson.fromJson(request.getReader(), 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
             
             // userId comes from session, ignore any client-provided value
             Long userId = com.journal.utils.SessionUtils.getUserId(request);
@@ -119,6 +122,25 @@ public class ProfileServlet extends HttpServlet {
             // Remove trailing comma and space
             sql.setLength(sql.length() - 2);
             sql.append(" WHERE id = ?");
+
+            // Verify the current password and hash the new one before taking a connection
+            // for the update; BCrypt takes far longer than the query
+            String newHash = null;
+            if (newPassword != null && !newPassword.trim().isEmpty()) {
+                // Read fresh, like login does, rather than from the user cache
+                String storedPassword = userDAO.findPasswordHash(userId);
+                if (storedPassword == null) {
+                    response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                    response.getWriter().write("{\"message\":\"User not found\"}");
+                    return;
+                }
+                if (!PasswordUtils.verifyPassword(currentPassword, storedPassword)) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    response.getWriter().write("{\"message\":\"Current password is incorrect\"}");
+                    return;
+                }
+                newHash = PasswordUtils.hashPassword(newPassword);
+            }
             
             try (Connection conn = DBConnection.getConnection();
                  PreparedStatement ps = conn.prepareStatement(sql.toString())) {
@@ -130,32 +152,14 @@ public class ProfileServlet extends HttpServlet {
                 if (email != null && !email.trim().isEmpty()) {
                     ps.setString(paramIndex++, email);
                 }
-                if (newPassword != null && !newPassword.trim().isEmpty()) {
-                    // Verify current password first
-                    String verifySql = "SELECT password_hash FROM users WHERE id = ?";
-                    try (PreparedStatement verifyPs = conn.prepareStatement(verifySql)) {
-                        verifyPs.setLong(1, userId);
-                        try (ResultSet rs = verifyPs.executeQuery()) {
-                            if (rs.next()) {
-                                String storedPassword = rs.getString("password_hash");
-                                if (!PasswordUtils.verifyPassword(currentPassword, storedPassword)) {
-                                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                                    response.getWriter().write("{\"message\":\"Current password is incorrect\"}");
-                                    return;
-                                }
-                            } else {
-                                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
-                                response.getWriter().write("{\"message\":\"User not found\"}");
-                                return;
-                            }
-                        }
-                    }
-                    ps.setString(paramIndex++, PasswordUtils.hashPassword(newPassword));
+                if (newHash != null) {
+                    ps.setString(paramIndex++, newHash);
                 }
                 ps.setLong(paramIndex, userId);
                 
                 int rowsAffected = ps.executeUpdate();
                 if (rowsAffected > 0) {
+                    ChangeNotifier.fireChanged(userId, ChangeNotifier.Resource.PROFILE);
                     response.getWriter().write("{\"message\":\"Profile updated successfully\"}");
                 } else {
                     response.setStatus(HttpServletResponse.SC_NOT_FOUND);
@@ -173,6 +177,11 @@ public class ProfileServlet extends HttpServlet {
                 response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
                 response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
             }
+        } catch (RejectedExecutionException e) {
+            // Too many passwords hashing at once; the client can try again shortly
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write("{\"message\":\"Server is busy, please try again\"}");
         } catch (Exception e) {
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
@@ -5,10 +5,11 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import com.journal.dao.DBConnection;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 import com.journal.utils.PasswordUtils;
 
 import jakarta.servlet.ServletException;
@@ -17,7 +18,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 public class RegisterServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+    private static final Log LOG = Log.get(RegisterServlet.class);
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
@@ -26,16 +27,15 @@ public class RegisterServlet extends HttpServlet {
         response.setContentType("application/json;charset=UTF-8");
         
         try {
-            System.out.println("=== RegisterServlet: POST /api/register ===");
+            LOG.debug("=== RegisterServlet: POST /api/register ===");
 
-            Map<String, String> body = gson.fromJson(request.getReader(),
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(request.getReader());
 
             String username = body.get("username");
             String email = body.get("email");
             String password = body.get("password");
             
-            System.out.println("Register attempt - Email: " + email + ", Username: " + username);
+            LOG.debug("Register attempt - Email: {}, Username: {}", email, username);
 
             if (username == null || email == null || password == null) {
                 response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
@@ -67,60 +67,64 @@ public class RegisterServlet extends HttpServlet {
             try (Connection conn = DBConnection.getConnection();
                  PreparedStatement ps = conn.prepareStatement(sql, PreparedStatement.RETURN_GENERATED_KEYS)) {
                 
-                System.out.println("Inserting user into database...");
                 ps.setString(1, username);
                 ps.setString(2, email);
                 ps.setString(3, hashedPassword);
 
                 int rowsAffected = ps.executeUpdate();
-                System.out.println("Rows affected: " + rowsAffected);
+                LOG.debug("Rows affected: {}", rowsAffected);
                 
                 if (rowsAffected > 0) {
                     // Get the generated user ID
                     var rs = ps.getGeneratedKeys();
                     if (rs.next()) {
                         long userId = rs.getLong(1);
-                        System.out.println("✓ User registered successfully - ID: " + userId + ", Email: " + email);
+                        LOG.info("✓ User registered successfully - ID: {}", userId);
                     } else {
-                        System.out.println("✓ User registered successfully: " + email);
+                        LOG.info("✓ User registered successfully");
                     }
                     
                     // Force commit (H2 should auto-commit by default, but let's be explicit)
                     if (!conn.getAutoCommit()) {
                         conn.commit();
-                        System.out.println("Transaction committed");
+                        LOG.debug("Transaction committed");
                     }
                     
-                    // Verify the user was actually inserted by querying
-                    try (PreparedStatement verifyPs = conn.prepareStatement("SELECT COUNT(*) FROM users WHERE email = ?")) {
-                        verifyPs.setString(1, email);
-                        var verifyRs = verifyPs.executeQuery();
-                        if (verifyRs.next()) {
-                            int count = verifyRs.getInt(1);
-                            System.out.println("Verification: Found " + count + " user(s) with email " + email);
+                    // Verify the user was actually inserted by querying; only worth a query when debugging
+                    if (LOG.isDebugEnabled()) {
+                        try (PreparedStatement verifyPs = conn.prepareStatement("SELECT COUNT(*) FROM users WHERE email = ?")) {
+                            verifyPs.setString(1, email);
+                            var verifyRs = verifyPs.executeQuery();
+                            if (verifyRs.next()) {
+                                LOG.debug("Verification: Found {} user(s) with email {}", verifyRs.getInt(1), email);
+                            }
                         }
                     }
                     
                     response.getWriter().write("{\"message\":\"User registered successfully\"}");
                 } else {
-                    System.err.println("✗ Registration failed - no rows affected");
+                    LOG.error("✗ Registration failed - no rows affected");
                     response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
                     response.getWriter().write("{\"message\":\"Failed to register user\"}");
                 }
             }
         } catch (SQLException e) {
-            System.err.println("✗ SQL Error during registration: " + e.getMessage());
-            e.printStackTrace();
             if (e.getSQLState() != null && e.getSQLState().equals("23505")) { // Unique constraint violation
+                LOG.debug("Registration rejected: email already exists");
                 response.setStatus(HttpServletResponse.SC_CONFLICT);
                 response.getWriter().write("{\"message\":\"Email already exists\"}");
             } else {
+                LOG.error("✗ SQL Error during registration: " + e.getMessage(), e);
                 response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
                 response.getWriter().write("{\"message\":\"Database error: " + e.getMessage() + "\"}");
             }
+        } catch (RejectedExecutionException e) {
+            // Too many passwords hashing at once; the client can try again shortly
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader("Retry-After", "1");
+            response.getWriter().write("{\"message\":\"Server is busy, please try again\"}");
         } catch (Exception e) {
-            System.err.println("✗ General error during registration: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("✗ General error during registration: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
         }
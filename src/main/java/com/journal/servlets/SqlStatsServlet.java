@@ -0,0 +1,89 @@
+package com.journal.servlets;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.journal.dao.SqlStats;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Settings;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Per-statement database timings from SqlStats. GET /admin/sql lists the statements
+ * (?sort=totalMs|maxMs|avgMs|executions|rowsPerQuery|slow, ?limit=); DELETE /admin/sql starts the
+ * numbers over, e.g. before a load test.
+ *
+ * Not a user endpoint: it answers only when ADMIN_TOKEN is set, and only to requests that
+ * send it as a Bearer token.
+ */
+public class SqlStatsServlet extends HttpServlet {
+
+    private static final String TOKEN = Settings.getString("ADMIN_TOKEN", "");
+    private static final Set<String> SORT_KEYS = Set.of("totalMs", "maxMs", "avgMs", "executions", "rowsPerQuery", "slow");
+
+    private final Gson gson = JsonUtils.gson();
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!authorized(request, response)) {
+            return;
+        }
+        String sort = request.getParameter("sort") == null ? "totalMs" : request.getParameter("sort");
+        int limit;
+        try {
+            limit = request.getParameter("limit") == null ? 50 : Integer.parseInt(request.getParameter("limit"));
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+        if (!SORT_KEYS.contains(sort) || limit <= 0) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write("{\"message\":\"sort must be one of " + SORT_KEYS + " and limit a positive number\"}");
+            return;
+        }
+        Map<String, Object> body = new HashMap<>(SqlStats.getStats());
+        body.put("statementsBy", sort);
+        body.put("top", SqlStats.top(sort, limit));
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(gson.toJson(body));
+    }
+
+    @Override
+    protected void doDelete(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        if (!authorized(request, response)) {
+            return;
+        }
+        SqlStats.reset();
+        response.setCharacterEncoding("UTF-8");
+        response.setContentType("application/json;charset=UTF-8");
+        response.getWriter().write("{\"message\":\"SQL stats reset\"}");
+    }
+
+    private static boolean authorized(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (TOKEN.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return false;
+        }
+        String header = request.getHeader("Authorization");
+        if (header == null || !header.startsWith("Bearer ") || !MessageDigest.isEqual(
+                header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8),
+                TOKEN.getBytes(StandardCharsets.UTF_8))) {
+            response.setHeader("WWW-Authenticate", "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED);
+            return false;
+        }
+        return true;
+    }
+}
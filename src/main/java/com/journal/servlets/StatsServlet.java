@@ -1,24 +1,61 @@
 package com.journal.servlets;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.google.gson.Gson;
-import com.journal.dao.DBConnection;
+import com.journal.dao.ChangeNotifier;
+import com.journal.dao.UserStatsDAO;
+import com.journal.utils.LruCache;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 import com.journal.utils.SessionUtils;
+import com.journal.utils.Settings;
 
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
-public class StatsServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+public class StatsServlet extends AsyncDbServlet {
+    private static final Log LOG = Log.get(StatsServlet.class);
+
+    // Dashboard stats per user; dropped on any entry, goal or profile write by that user
+    private static final LruCache<Long, Map<String, Object>> CACHE = new LruCache<>(
+            Settings.getInt("STATS_CACHE_SIZE", 1000),
+            Settings.getInt("STATS_CACHE_TTL_MS", 60 * 1000));
+
+    private static final ChangeNotifier.Listener INVALIDATOR = (userId, resource) -> {
+        if (resource != ChangeNotifier.Resource.MOODS) {
+            CACHE.invalidate(userId);
+        }
+    };
+
+    private final Gson gson = JsonUtils.gson();
+    private final UserStatsDAO userStatsDAO = new UserStatsDAO();
+
+    public StatsServlet() {
+        super("stats", 15_000);
+    }
+
+    @Override
+    public void init() throws ServletException {
+        ChangeNotifier.addListener(INVALIDATOR);
+    }
+
+    @Override
+    public void destroy() {
+        ChangeNotifier.removeListener(INVALIDATOR);
+        CACHE.invalidateAll();
+    }
+
+    public static Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new HashMap<>(CACHE.getStats());
+        stats.put("enabled", ChangeNotifier.seesAllWrites());
+        return stats;
+    }
 
     @Override
     protected void doGet(HttpServletRequest request, HttpServletResponse response)
@@ -26,7 +63,7 @@ public class StatsServlet extends HttpServlet {
         response.setCharacterEncoding("UTF-8");
         response.setContentType("application/json;charset=UTF-8");
         
-        System.out.println("=== StatsServlet: GET /api/stats ===");
+        LOG.debug("=== StatsServlet: GET /api/stats ===");
         
         // Validate session
         if (!SessionUtils.validateSession(request, response)) {
@@ -49,87 +86,12 @@ public class StatsServlet extends HttpServlet {
         }
     }
 
+    // Shared between requests, so callers get a read-only view. Not cached when other nodes
+    // write too: their changes would not drop this node's copy.
     private Map<String, Object> getStatsForUser(Long userId) throws SQLException {
-        Map<String, Object> stats = new HashMap<>();
-        
-        try (Connection conn = DBConnection.getConnection()) {
-            // Get username
-            String userSql = "SELECT name FROM users WHERE id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(userSql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stats.put("username", rs.getString("name"));
-                    }
-                }
-            }
-            
-            // Total entries (exclude gratitude entries)
-            String entriesSql = "SELECT COUNT(*) as count FROM entries WHERE user_id = ? AND content NOT LIKE '[gratitude]%'";
-            try (PreparedStatement ps = conn.prepareStatement(entriesSql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stats.put("totalEntries", rs.getInt("count"));
-                    }
-                }
-            }
-            
-            // Total goals
-            String goalsSql = "SELECT COUNT(*) as count FROM goals WHERE user_id = ?";
-            try (PreparedStatement ps = conn.prepareStatement(goalsSql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stats.put("totalGoals", rs.getInt("count"));
-                    }
-                }
-            }
-            
-            // Completed goals
-            String completedGoalsSql = "SELECT COUNT(*) as count FROM goals WHERE user_id = ? AND completed = true";
-            try (PreparedStatement ps = conn.prepareStatement(completedGoalsSql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stats.put("completedGoals", rs.getInt("count"));
-                    }
-                }
-            }
-            
-            // Goals progress percentage
-            int totalGoals = (Integer) stats.get("totalGoals");
-            int completedGoals = (Integer) stats.get("completedGoals");
-            int progress = totalGoals > 0 ? (completedGoals * 100) / totalGoals : 0;
-            stats.put("goalsProgress", progress);
-            
-            // Current mood (most recent, exclude gratitude entries)
-            String moodSql = "SELECT mood FROM entries WHERE user_id = ? AND content NOT LIKE '[gratitude]%' ORDER BY created_at DESC LIMIT 1";
-            try (PreparedStatement ps = conn.prepareStatement(moodSql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    if (rs.next()) {
-                        stats.put("currentMood", rs.getString("mood"));
-                    } else {
-                        stats.put("currentMood", "😐");
-                    }
-                }
-            }
-            
-            // Mood distribution (exclude gratitude entries)
-            String moodDistSql = "SELECT mood, COUNT(*) as count FROM entries WHERE user_id = ? AND mood IS NOT NULL AND content NOT LIKE '[gratitude]%' GROUP BY mood";
-            Map<String, Integer> moodDistribution = new HashMap<>();
-            try (PreparedStatement ps = conn.prepareStatement(moodDistSql)) {
-                ps.setLong(1, userId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        moodDistribution.put(rs.getString("mood"), rs.getInt("count"));
-                    }
-                }
-            }
-            stats.put("moodDistribution", moodDistribution);
+        if (!ChangeNotifier.seesAllWrites()) {
+            return userStatsDAO.loadStats(userId);
         }
-        
-        return stats;
+        return CACHE.get(userId, () -> Collections.unmodifiableMap(userStatsDAO.loadStats(userId)));
     }
 }
@@ -4,7 +4,8 @@ import java.io.IOException;
 import java.util.Map;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.journal.utils.JsonUtils;
+import com.journal.utils.Log;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServlet;
@@ -12,7 +13,9 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 public class TestServlet extends HttpServlet {
-    private final Gson gson = new Gson();
+    private static final Log LOG = Log.get(TestServlet.class);
+
+    private final Gson gson = JsonUtils.gson();
 
     @Override
     protected void doPost(HttpServletRequest request, HttpServletResponse response)
@@ -20,9 +23,9 @@ public class TestServlet extends HttpServlet {
         response.setContentType("application/json");
         
         try {
-            System.out.println("TestServlet: Received POST request");
-            System.out.println("TestServlet: Content-Type: " + request.getContentType());
-            System.out.println("TestServlet: Content-Length: " + request.getContentLength());
+            LOG.debug("TestServlet: Received POST request");
+            LOG.debug("TestServlet: Content-Type: {}", request.getContentType());
+            LOG.debug("TestServlet: Content-Length: {}", request.getContentLength());
             
             // Read the raw request body
             StringBuilder sb = new StringBuilder();
@@ -31,19 +34,17 @@ public class TestServlet extends HttpServlet {
                 sb.append(line);
             }
             String rawBody = sb.toString();
-            System.out.println("TestServlet: Raw body: " + rawBody);
+            LOG.debug("TestServlet: Raw body: {}", rawBody);
             
             // Try to parse as JSON
-            Map<String, String> body = gson.fromJson(rawBody, 
-                new TypeToken<Map<String, String>>(){}.getType());
+            Map<String, String> body = JsonUtils.readStringMap(new java.io.StringReader(rawBody));
             
-            System.out.println("TestServlet: Parsed body: " + body);
+            LOG.debug("TestServlet: Parsed body: {}", body);
             
             response.getWriter().write("{\"message\":\"Test successful\", \"received\": " + gson.toJson(body) + "}");
             
         } catch (Exception e) {
-            System.out.println("TestServlet: Exception: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("TestServlet: Exception: " + e.getMessage(), e);
             response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             response.getWriter().write("{\"message\":\"Error: " + e.getMessage() + "\"}");
         }
@@ -0,0 +1,32 @@
+package com.journal.tools;
+
+import com.journal.dao.DBConnection;
+import com.journal.dao.UserStatsDAO;
+
+/**
+ * Recomputes the materialized /api/stats counters from the entries and goals tables.
+ *
+ * Usage: java -cp MentalJournalApp/WEB-INF/classes:MentalJournalApp/WEB-INF/lib/* \
+ *            com.journal.tools.RebuildStats [userId ...]
+ *
+ * With no arguments every user is rebuilt. Uses the same DB_PATH as the web app.
+ */
+public class RebuildStats {
+
+    public static void main(String[] args) throws Exception {
+        UserStatsDAO dao = new UserStatsDAO();
+        try {
+            if (args.length == 0) {
+                int count = dao.rebuildAll();
+                System.out.println("Rebuilt stats for " + count + " users");
+            } else {
+                for (String arg : args) {
+                    dao.rebuild(Long.parseLong(arg));
+                    System.out.println("Rebuilt stats for user " + arg);
+                }
+            }
+        } finally {
+            DBConnection.shutdown();
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.journal.utils;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.journal.models.Entry;
+import com.journal.models.Goal;
+import com.journal.models.Mood;
+import com.journal.models.User;
+import java.io.IOException;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hand-written adapters behind JsonUtils.gson(), so the hot paths skip reflection.
+ *
+ * Fields are written in declaration order and nulls are left out, as the reflective
+ * adapters did. Dates are ISO-8601: "2024-05-03" for java.sql.Date and an instant such
+ * as "2024-05-03T08:15:00.123Z" for Timestamp.
+ */
+final class JsonAdapters {
+
+	private JsonAdapters() { }
+
+	static final TypeAdapter<Date> SQL_DATE = new TypeAdapter<Date>() {
+		@Override
+		public void write(JsonWriter out, Date value) throws IOException {
+			out.value(value == null ? null : value.toString());
+		}
+
+		@Override
+		public Date read(JsonReader in) throws IOException {
+			String value = nextStringOrNull(in);
+			try {
+				return value == null || value.isEmpty() ? null : Date.valueOf(value);
+			} catch (IllegalArgumentException e) {
+				throw new JsonSyntaxException("Invalid date: " + value, e);
+			}
+		}
+	};
+
+	static final TypeAdapter<Timestamp> TIMESTAMP = new TypeAdapter<Timestamp>() {
+		@Override
+		public void write(JsonWriter out, Timestamp value) throws IOException {
+			out.value(value == null ? null : value.toInstant().toString());
+		}
+
+		@Override
+		public Timestamp read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NUMBER) {
+				return new Timestamp(in.nextLong());
+			}
+			String value = nextStringOrNull(in);
+			try {
+				return value == null || value.isEmpty() ? null : Timestamp.from(Instant.parse(value));
+			} catch (DateTimeParseException e) {
+				throw new JsonSyntaxException("Invalid timestamp: " + value, e);
+			}
+		}
+	};
+
+	/** Request bodies: a flat object of strings. Numbers and booleans are read as their text. */
+	static final TypeAdapter<Map<String, String>> STRING_MAP = new TypeAdapter<Map<String, String>>() {
+		@Override
+		public void write(JsonWriter out, Map<String, String> value) throws IOException {
+			if (value == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			for (Map.Entry<String, String> field : value.entrySet()) {
+				out.name(field.getKey()).value(field.getValue());
+			}
+			out.endObject();
+		}
+
+		@Override
+		public Map<String, String> read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			Map<String, String> map = new HashMap<>();
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+				String value;
+				switch (in.peek()) {
+					case STRING:
+					case NUMBER:
+						value = in.nextString();
+						break;
+					case BOOLEAN:
+						value = Boolean.toString(in.nextBoolean());
+						break;
+					case NULL:
+						in.nextNull();
+						value = null;
+						break;
+					default:
+						throw new JsonSyntaxException("Expected a string value for " + name + " at " + in.getPath());
+				}
+				if (map.put(name, value) != null) {
+					throw new JsonSyntaxException("Duplicate key: " + name);
+				}
+			}
+			in.endObject();
+			return map;
+		}
+	};
+
+	static final TypeAdapter<Entry> ENTRY = new TypeAdapter<Entry>() {
+		@Override
+		public void write(JsonWriter out, Entry entry) throws IOException {
+			if (entry == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("id").value(entry.getId());
+			out.name("userId").value(entry.getUserId());
+			SQL_DATE.write(out.name("entryDate"), entry.getEntryDate());
+			out.name("mood").value(entry.getMood());
+			out.name("content").value(entry.getContent());
+			out.name("entryType").value(entry.getEntryType());
+			TIMESTAMP.write(out.name("createdAt"), entry.getCreatedAt());
+			out.endObject();
+		}
+
+		@Override
+		public Entry read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			Entry entry = new Entry();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "id": entry.setId(nextLongOrNull(in)); break;
+					case "userId": entry.setUserId(nextLongOrNull(in)); break;
+					case "entryDate": entry.setEntryDate(SQL_DATE.read(in)); break;
+					case "mood": entry.setMood(nextStringOrNull(in)); break;
+					case "content": entry.setContent(nextStringOrNull(in)); break;
+					case "entryType": entry.setEntryType(nextStringOrNull(in)); break;
+					case "createdAt": entry.setCreatedAt(TIMESTAMP.read(in)); break;
+					default: in.skipValue();
+				}
+			}
+			in.endObject();
+			return entry;
+		}
+	};
+
+	static final TypeAdapter<Goal> GOAL = new TypeAdapter<Goal>() {
+		@Override
+		public void write(JsonWriter out, Goal goal) throws IOException {
+			if (goal == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("id").value(goal.getId());
+			out.name("userId").value(goal.getUserId());
+			out.name("title").value(goal.getTitle());
+			out.name("description").value(goal.getDescription());
+			SQL_DATE.write(out.name("targetDate"), goal.getTargetDate());
+			out.name("completed").value(goal.getCompleted());
+			TIMESTAMP.write(out.name("createdAt"), goal.getCreatedAt());
+			out.endObject();
+		}
+
+		@Override
+		public Goal read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			Goal goal = new Goal();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "id": goal.setId(nextLongOrNull(in)); break;
+					case "userId": goal.setUserId(nextLongOrNull(in)); break;
+					case "title": goal.setTitle(nextStringOrNull(in)); break;
+					case "description": goal.setDescription(nextStringOrNull(in)); break;
+					case "targetDate": goal.setTargetDate(SQL_DATE.read(in)); break;
+					case "completed": goal.setCompleted(nextBooleanOrNull(in)); break;
+					case "createdAt": goal.setCreatedAt(TIMESTAMP.read(in)); break;
+					default: in.skipValue();
+				}
+			}
+			in.endObject();
+			return goal;
+		}
+	};
+
+	static final TypeAdapter<Mood> MOOD = new TypeAdapter<Mood>() {
+		@Override
+		public void write(JsonWriter out, Mood mood) throws IOException {
+			if (mood == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("id").value(mood.getId());
+			out.name("userId").value(mood.getUserId());
+			out.name("mood").value(mood.getMood());
+			TIMESTAMP.write(out.name("loggedAt"), mood.getLoggedAt());
+			out.endObject();
+		}
+
+		@Override
+		public Mood read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			Mood mood = new Mood();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "id": mood.setId(nextLongOrNull(in)); break;
+					case "userId": mood.setUserId(nextLongOrNull(in)); break;
+					case "mood": mood.setMood(nextStringOrNull(in)); break;
+					case "loggedAt": mood.setLoggedAt(TIMESTAMP.read(in)); break;
+					default: in.skipValue();
+				}
+			}
+			in.endObject();
+			return mood;
+		}
+	};
+
+	// The password hash is never written, whatever the caller passes in
+	static final TypeAdapter<User> USER = new TypeAdapter<User>() {
+		@Override
+		public void write(JsonWriter out, User user) throws IOException {
+			if (user == null) {
+				out.nullValue();
+				return;
+			}
+			out.beginObject();
+			out.name("id").value(user.getId());
+			out.name("name").value(user.getName());
+			out.name("email").value(user.getEmail());
+			out.endObject();
+		}
+
+		@Override
+		public User read(JsonReader in) throws IOException {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				return null;
+			}
+			User user = new User();
+			in.beginObject();
+			while (in.hasNext()) {
+				switch (in.nextName()) {
+					case "id": user.setId(nextLongOrNull(in)); break;
+					case "name": user.setName(nextStringOrNull(in)); break;
+					case "email": user.setEmail(nextStringOrNull(in)); break;
+					default: in.skipValue();
+				}
+			}
+			in.endObject();
+			return user;
+		}
+	};
+
+	private static String nextStringOrNull(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextString();
+	}
+
+	private static Long nextLongOrNull(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextLong();
+	}
+
+	private static Boolean nextBooleanOrNull(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+		return in.nextBoolean();
+	}
+}
@@ -1,15 +1,48 @@
 package com.journal.utils;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import com.journal.models.Entry;
+import com.journal.models.Goal;
+import com.journal.models.Mood;
+import com.journal.models.User;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.BufferedReader;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.sql.Timestamp;
 import java.util.Map;
 
+/**
+ * The one Gson instance the servlets share. Models, request bodies and dates go through
+ * the precompiled adapters in JsonAdapters, and Gson is thread-safe, so there is no
+ * reason for a class to build its own.
+ */
 public class JsonUtils {
-	private static final Gson GSON = new Gson();
+	/** Type of the flat request bodies every servlet reads. */
+	public static final Type STRING_MAP = new TypeToken<Map<String, String>>(){}.getType();
+
+	private static final Gson GSON = new GsonBuilder()
+		.registerTypeAdapter(java.sql.Date.class, JsonAdapters.SQL_DATE)
+		.registerTypeAdapter(Timestamp.class, JsonAdapters.TIMESTAMP)
+		.registerTypeAdapter(STRING_MAP, JsonAdapters.STRING_MAP)
+		.registerTypeAdapter(Entry.class, JsonAdapters.ENTRY)
+		.registerTypeAdapter(Goal.class, JsonAdapters.GOAL)
+		.registerTypeAdapter(Mood.class, JsonAdapters.MOOD)
+		.registerTypeAdapter(User.class, JsonAdapters.USER)
+		.create();
+
+	public static Gson gson() {
+		return GSON;
+	}
+
+	/** Reads a request body such as {"mood":"happy"}; throws JsonSyntaxException when it is malformed. */
+	public static Map<String, String> readStringMap(Reader reader) {
+		return GSON.fromJson(reader, STRING_MAP);
+	}
 
 	public static <T> T parseJson(BufferedReader reader, Type typeOfT) throws IOException {
 		try {
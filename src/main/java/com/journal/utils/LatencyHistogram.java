@@ -0,0 +1,116 @@
+package com.journal.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram in microseconds with a fixed footprint (about 2 KB).
+ *
+ * Buckets are log-linear like HdrHistogram's: values below 16 µs get a bucket each, and every
+ * power of two above that is split into SUB_BUCKETS equal parts, so any recorded value is
+ * known to within 1/8 (12.5%) from 1 µs to about 19 hours. Recording is a bucket index
+ * computed with a few shifts and one atomic add per counter; nothing is allocated.
+ *
+ * Readers see a moving target while requests are recorded. Counts read in one pass are
+ * consistent with each other (cumulative counts never go down), but the sum and max may
+ * already include a value the bucket counts do not.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = indexOf(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void record(long micros) {
+        long value = micros < 0 ? 0 : Math.min(micros, MAX_VALUE);
+        counts.incrementAndGet(indexOf(value));
+        sumMicros.addAndGet(value);
+        long max = maxMicros.get();
+        while (value > max && !maxMicros.compareAndSet(max, value)) {
+            max = maxMicros.get();
+        }
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long sumMicros() {
+        return sumMicros.get();
+    }
+
+    public long maxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * Counts of values below each bound (ascending, in µs), followed by the total count. Bounds
+     * that are powers of two are exact; others are rounded down to the bucket edge below them.
+     */
+    public long[] cumulativeCounts(long[] boundsMicros) {
+        long[] result = new long[boundsMicros.length + 1];
+        long total = 0;
+        int next = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            while (next < boundsMicros.length && upperBound(i) > boundsMicros[next]) {
+                result[next++] = total;
+            }
+            total += counts.get(i);
+        }
+        while (next < boundsMicros.length) {
+            result[next++] = total;
+        }
+        result[boundsMicros.length] = total;
+        return result;
+    }
+
+    /** Upper edge of the bucket holding the given quantile (0..1), capped at the maximum seen. */
+    public long valueAtQuantile(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBound(i) - 1, maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    private static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift << SUB_BITS) + (int) (value >>> shift);
+    }
+
+    /** Exclusive upper edge of bucket i. */
+    private static long upperBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index + 1;
+        }
+        int shift = (index >>> SUB_BITS) - 1;
+        long sub = (index & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return (sub + 1) << shift;
+    }
+}
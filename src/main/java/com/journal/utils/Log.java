@@ -0,0 +1,470 @@
+package com.journal.utils;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Leveled logging that never makes the calling thread wait for output.
+ *
+ * Each class gets its own logger: {@code private static final Log LOG = Log.get(Foo.class)}.
+ * Its level is the LOG_LEVELS entry with the longest matching class or package prefix
+ * (e.g. {@code com.journal.servlets=DEBUG,com.journal.dao.ConnectionPool=WARN}), or LOG_LEVEL.
+ * Messages take {} placeholders and are only formatted when the level is enabled.
+ *
+ * Enabled messages go into a fixed-size lock-free ring, and one background thread writes
+ * them out in batches, so a slow stdout pipe no longer serializes request threads. A full ring
+ * sheds the least important lines first: past half full only one in SAMPLE debug and info
+ * lines is kept, past three quarters they are dropped, and warnings and errors are dropped
+ * only when the ring is full. The writer reports what it lost once it catches up.
+ *
+ * Debug and info lines go to stdout, warnings and errors to stderr, as plain text or, with
+ * LOG_FORMAT=json, one JSON object per line.
+ */
+public final class Log {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    private static final Level ROOT_LEVEL = parseLevel("LOG_LEVEL", setting("LOG_LEVEL", "INFO"), Level.INFO);
+    private static final Map<String, Level> LEVELS = parseLevels(setting("LOG_LEVELS", ""));
+    private static final boolean JSON = "json".equalsIgnoreCase(setting("LOG_FORMAT", "text"));
+    private static final int SAMPLE = 8;
+
+    private static final LongAdder WRITTEN = new LongAdder();
+    private static final LongAdder DROPPED = new LongAdder();
+    private static final LongAdder SAMPLED_OUT = new LongAdder();
+
+    // Started by the first message; stopped by shutdown(), or at JVM exit outside a container
+    private static final class Writer {
+        static final Ring RING = new Ring(ringCapacity());
+        static volatile boolean sleeping;
+        static final Thread THREAD = start();
+        static final Thread EXIT_HOOK = exitHook();
+
+        static void wake() {
+            if (sleeping) {
+                sleeping = false;
+                LockSupport.unpark(THREAD);
+            }
+        }
+
+        private static Thread start() {
+            Thread thread = new Thread(Log::drain, "log-writer");
+            thread.setDaemon(true);
+            thread.start();
+            return thread;
+        }
+
+        private static Thread exitHook() {
+            Thread hook = new Thread(Log::shutdown, "log-flush");
+            Runtime.getRuntime().addShutdownHook(hook);
+            return hook;
+        }
+    }
+    private static volatile boolean started;
+    private static volatile boolean stopped;
+
+    private final String name;
+    private final String shortName;
+    private final Level level;
+
+    private Log(String name, String shortName, Level level) {
+        this.name = name;
+        this.shortName = shortName;
+        this.level = level;
+    }
+
+    public static Log get(Class<?> type) {
+        String name = type.getName();
+        Level level = ROOT_LEVEL;
+        int matched = -1;
+        for (Map.Entry<String, Level> entry : LEVELS.entrySet()) {
+            String prefix = entry.getKey();
+            boolean matches = name.equals(prefix) || name.startsWith(prefix + ".") || name.startsWith(prefix + "$");
+            if (matches && prefix.length() > matched) {
+                level = entry.getValue();
+                matched = prefix.length();
+            }
+        }
+        return new Log(name, type.getSimpleName(), level);
+    }
+
+    public boolean isEnabled(Level at) {
+        return at.compareTo(level) >= 0 && at != Level.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) { log(Level.DEBUG, message, null, null, null); }
+    public void debug(String pattern, Object arg) { log(Level.DEBUG, pattern, arg, null, null); }
+    public void debug(String pattern, Object arg1, Object arg2) { log(Level.DEBUG, pattern, arg1, arg2, null); }
+    public void debug(String pattern, Object... args) { log(Level.DEBUG, pattern, null, null, args); }
+
+    public void info(String message) { log(Level.INFO, message, null, null, null); }
+    public void info(String pattern, Object arg) { log(Level.INFO, pattern, arg, null, null); }
+    public void info(String pattern, Object arg1, Object arg2) { log(Level.INFO, pattern, arg1, arg2, null); }
+    public void info(String pattern, Object... args) { log(Level.INFO, pattern, null, null, args); }
+
+    public void warn(String message) { log(Level.WARN, message, null, null, null); }
+    public void warn(String pattern, Object arg) { log(Level.WARN, pattern, arg, null, null); }
+    public void warn(String pattern, Object arg1, Object arg2) { log(Level.WARN, pattern, arg1, arg2, null); }
+    public void warn(String pattern, Object... args) { log(Level.WARN, pattern, null, null, args); }
+    public void warn(String message, Throwable error) { enqueue(Level.WARN, message, error); }
+
+    public void error(String message) { log(Level.ERROR, message, null, null, null); }
+    public void error(String pattern, Object arg) { log(Level.ERROR, pattern, arg, null, null); }
+    public void error(String pattern, Object arg1, Object arg2) { log(Level.ERROR, pattern, arg1, arg2, null); }
+    public void error(String pattern, Object... args) { log(Level.ERROR, pattern, null, null, args); }
+    public void error(String message, Throwable error) { enqueue(Level.ERROR, message, error); }
+
+    /** Lines written, dropped and sampled out, and how full the ring is. */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("level", ROOT_LEVEL.name());
+        stats.put("written", WRITTEN.sum());
+        stats.put("dropped", DROPPED.sum());
+        stats.put("sampledOut", SAMPLED_OUT.sum());
+        stats.put("queued", started ? Writer.RING.size() : 0);
+        stats.put("capacity", started ? Writer.RING.capacity() : ringCapacity());
+        return stats;
+    }
+
+    /** Writes out what is queued and stops the writer; later messages are written directly. */
+    public static void shutdown() {
+        if (!started || stopped) {
+            return;
+        }
+        stopped = true;
+        try {
+            Runtime.getRuntime().removeShutdownHook(Writer.EXIT_HOOK);
+        } catch (IllegalStateException e) {
+            // Already exiting
+        }
+        LockSupport.unpark(Writer.THREAD);
+        try {
+            Writer.THREAD.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (!Writer.THREAD.isAlive()) {
+            // Messages queued while the writer was finishing
+            Entry entry;
+            while ((entry = Writer.RING.poll()) != null) {
+                write(entry);
+            }
+        }
+    }
+
+    private void log(Level at, String pattern, Object arg1, Object arg2, Object[] args) {
+        if (!isEnabled(at)) {
+            return;
+        }
+        enqueue(at, args != null ? format(pattern, args) : format(pattern, arg1, arg2), null);
+    }
+
+    private void enqueue(Level at, String message, Throwable error) {
+        if (!isEnabled(at)) {
+            return;
+        }
+        Entry entry = new Entry(System.currentTimeMillis(), at, Thread.currentThread().getName(), this, message, error);
+        if (stopped) {
+            write(entry);
+            return;
+        }
+        started = true;
+        Ring ring = Writer.RING;
+        if (at.compareTo(Level.WARN) < 0) {
+            int queued = ring.size();
+            if (queued >= ring.capacity() / 4 * 3) {
+                DROPPED.increment();
+                return;
+            }
+            if (queued >= ring.capacity() / 2 && ThreadLocalRandom.current().nextInt(SAMPLE) != 0) {
+                SAMPLED_OUT.increment();
+                return;
+            }
+        }
+        if (!ring.offer(entry)) {
+            DROPPED.increment();
+            return;
+        }
+        Writer.wake();
+    }
+
+    static String format(String pattern, Object arg1, Object arg2) {
+        int first = pattern.indexOf("{}");
+        if (first < 0) {
+            return pattern;
+        }
+        StringBuilder out = new StringBuilder(pattern.length() + 32);
+        out.append(pattern, 0, first).append(arg1);
+        int second = pattern.indexOf("{}", first + 2);
+        if (second < 0) {
+            return out.append(pattern, first + 2, pattern.length()).toString();
+        }
+        return out.append(pattern, first + 2, second).append(arg2).append(pattern, second + 2, pattern.length()).toString();
+    }
+
+    static String format(String pattern, Object[] args) {
+        StringBuilder out = new StringBuilder(pattern.length() + 16 * args.length);
+        int from = 0;
+        for (Object arg : args) {
+            int at = pattern.indexOf("{}", from);
+            if (at < 0) {
+                break;
+            }
+            out.append(pattern, from, at).append(arg);
+            from = at + 2;
+        }
+        return out.append(pattern, from, pattern.length()).toString();
+    }
+
+    private static final class Entry {
+        final long time;
+        final Level level;
+        final String thread;
+        final Log logger;
+        final String message;
+        final Throwable error;
+
+        Entry(long time, Level level, String thread, Log logger, String message, Throwable error) {
+            this.time = time;
+            this.level = level;
+            this.thread = thread;
+            this.logger = logger;
+            this.message = message;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Bounded multi-producer, single-consumer queue over a power-of-two array. Each slot has a
+     * sequence number telling producers whether it is free for their lap of the ring and the
+     * consumer whether it has been filled, so neither side takes a lock.
+     */
+    private static final class Ring {
+        private final int mask;
+        private final AtomicReferenceArray<Entry> slots;
+        private final AtomicLongArray sequences;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(16, capacity) - 1) << 1;
+            mask = size - 1;
+            slots = new AtomicReferenceArray<>(size);
+            sequences = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++) {
+                sequences.set(i, i);
+            }
+        }
+
+        boolean offer(Entry entry) {
+            long position = tail.get();
+            while (true) {
+                int slot = (int) position & mask;
+                long lag = sequences.get(slot) - position;
+                if (lag == 0) {
+                    if (tail.compareAndSet(position, position + 1)) {
+                        slots.set(slot, entry);
+                        sequences.set(slot, position + 1);
+                        return true;
+                    }
+                    position = tail.get();
+                } else if (lag < 0) {
+                    // The consumer has not freed this slot from the previous lap: full
+                    return false;
+                } else {
+                    position = tail.get();
+                }
+            }
+        }
+
+        // Consumer thread only
+        Entry poll() {
+            long position = head;
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) {
+                return null;
+            }
+            Entry entry = slots.get(slot);
+            slots.set(slot, null);
+            sequences.set(slot, position + mask + 1);
+            head = position + 1;
+            return entry;
+        }
+
+        int size() {
+            return (int) Math.max(0, tail.get() - head);
+        }
+
+        int capacity() {
+            return mask + 1;
+        }
+    }
+
+    private static void drain() {
+        Ring ring = Writer.RING;
+        StringBuilder out = new StringBuilder(8192);
+        StringBuilder err = new StringBuilder(1024);
+        long reportedDropped = 0;
+        long reportedSampled = 0;
+        while (true) {
+            boolean stopping = stopped;
+            int batch = 0;
+            Entry entry;
+            while (batch < 1024 && (entry = ring.poll()) != null) {
+                render(entry, entry.level.compareTo(Level.WARN) < 0 ? out : err);
+                batch++;
+            }
+            long dropped = DROPPED.sum();
+            long sampled = SAMPLED_OUT.sum();
+            if (batch == 0 && (dropped != reportedDropped || sampled != reportedSampled)) {
+                // Caught up: say what was lost while behind
+                render(new Entry(System.currentTimeMillis(), Level.WARN, Thread.currentThread().getName(), null,
+                    "Log output fell behind: " + (dropped - reportedDropped) + " lines dropped, "
+                        + (sampled - reportedSampled) + " sampled out", null), err);
+                reportedDropped = dropped;
+                reportedSampled = sampled;
+            }
+            flush(out, System.out);
+            flush(err, System.err);
+            WRITTEN.add(batch);
+            if (batch == 0) {
+                if (stopping) {
+                    return;
+                }
+                Writer.sleeping = true;
+                if (ring.size() == 0 && !stopped) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                }
+                Writer.sleeping = false;
+            }
+        }
+    }
+
+    private static void write(Entry entry) {
+        StringBuilder line = new StringBuilder(128);
+        render(entry, line);
+        flush(line, entry.level.compareTo(Level.WARN) < 0 ? System.out : System.err);
+        WRITTEN.increment();
+    }
+
+    private static void flush(StringBuilder text, PrintStream stream) {
+        if (text.length() > 0) {
+            stream.print(text);
+            stream.flush();
+            text.setLength(0);
+        }
+    }
+
+    private static void render(Entry entry, StringBuilder out) {
+        String time = DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochMilli(entry.time));
+        String logger = entry.logger != null ? entry.logger.name : Log.class.getName();
+        String error = entry.error != null ? stackTrace(entry.error) : null;
+        if (JSON) {
+            out.append("{\"time\":\"").append(time)
+                .append("\",\"level\":\"").append(entry.level)
+                .append("\",\"thread\":");
+            jsonString(entry.thread, out);
+            out.append(",\"logger\":\"").append(logger).append("\",\"message\":");
+            jsonString(entry.message, out);
+            if (error != null) {
+                out.append(",\"error\":");
+                jsonString(error, out);
+            }
+            out.append("}\n");
+            return;
+        }
+        out.append(time).append(' ').append(entry.level);
+        if (entry.level.name().length() == 4) {
+            out.append(' ');
+        }
+        out.append(" [").append(entry.thread).append("] ")
+            .append(entry.logger != null ? entry.logger.shortName : "Log")
+            .append(" - ").append(entry.message).append('\n');
+        if (error != null) {
+            out.append(error);
+        }
+    }
+
+    private static String stackTrace(Throwable error) {
+        StringWriter text = new StringWriter();
+        error.printStackTrace(new PrintWriter(text));
+        return text.toString();
+    }
+
+    private static void jsonString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    // Log cannot use Settings: Settings logs invalid values through Log
+    private static String setting(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    private static int ringCapacity() {
+        String value = setting("LOG_BUFFER_SIZE", "8192");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring invalid LOG_BUFFER_SIZE=" + value + ", using 8192");
+            return 8192;
+        }
+    }
+
+    private static Level parseLevel(String setting, String value, Level defaultLevel) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("Ignoring invalid " + setting + " level " + value + ", using " + defaultLevel);
+            return defaultLevel;
+        }
+    }
+
+    private static Map<String, Level> parseLevels(String value) {
+        Map<String, Level> levels = new HashMap<>();
+        for (String entry : value.split(",")) {
+            int equals = entry.indexOf('=');
+            if (equals > 0) {
+                levels.put(entry.substring(0, equals).trim(), parseLevel("LOG_LEVELS", entry.substring(equals + 1), ROOT_LEVEL));
+            } else if (!entry.isBlank()) {
+                System.err.println("Ignoring LOG_LEVELS entry without a level: " + entry);
+            }
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,184 @@
+package com.journal.utils;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small thread-safe cache with a size bound (least recently used goes first) and a
+ * time-to-live per value.
+ *
+ * get(key, loader) is read-through and single-flight: when many threads miss on the
+ * same key at once, one runs the loader and the others wait for its result. A value
+ * whose key is invalidated while it is being loaded is returned to the waiting callers
+ * but not cached, so a write that races with a load is never hidden by stale data.
+ * A null result is not cached either: absent rows are looked up again next time.
+ */
+public class LruCache<K, V> {
+
+    @FunctionalInterface
+    public interface Loader<V, E extends Exception> {
+        V load() throws E;
+    }
+
+    private static final class Cached<V> {
+        final V value;
+        final long expiresAt;
+
+        Cached(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Loading<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        boolean invalidated;
+    }
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Cached<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<K, Loading<V>> loading = new HashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    public LruCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    public <E extends Exception> V get(K key, Loader<V, E> loader) throws E {
+        Loading<V> ours = null;
+        Loading<V> theirs;
+        lock.lock();
+        try {
+            Cached<V> cached = entries.get(key);
+            if (cached != null) {
+                if (System.nanoTime() - cached.expiresAt < 0) {
+                    hits.increment();
+                    return cached.value;
+                }
+                entries.remove(key);
+                expirations.increment();
+            }
+            misses.increment();
+            theirs = loading.get(key);
+            if (theirs == null) {
+                ours = new Loading<>();
+                loading.put(key, ours);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (ours == null) {
+            try {
+                return theirs.result.get();
+            } catch (ExecutionException e) {
+                // The other caller's load failed; try on our own so the error is ours to handle
+                return loader.load();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return loader.load();
+            }
+        }
+
+        V value;
+        try {
+            loads.increment();
+            value = loader.load();
+        } catch (Throwable e) {
+            lock.lock();
+            try {
+                loading.remove(key, ours);
+            } finally {
+                lock.unlock();
+            }
+            ours.result.completeExceptionally(e);
+            throw e;
+        }
+        lock.lock();
+        try {
+            if (loading.remove(key, ours) && !ours.invalidated && value != null && maxSize > 0) {
+                entries.put(key, new Cached<>(value, System.nanoTime() + ttlNanos));
+                evictOverflow();
+            }
+        } finally {
+            lock.unlock();
+        }
+        ours.result.complete(value);
+        return value;
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+            Loading<V> inFlight = loading.remove(key);
+            if (inFlight != null) {
+                inFlight.invalidated = true;
+            }
+            invalidations.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+            for (Loading<V> inFlight : loading.values()) {
+                inFlight.invalidated = true;
+            }
+            loading.clear();
+            invalidations.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("loads", loads.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    // Caller holds the lock
+    private void evictOverflow() {
+        Iterator<Cached<V>> it = entries.values().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+}
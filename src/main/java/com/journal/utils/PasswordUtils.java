@@ -1,18 +1,247 @@
 package com.journal.utils;
 
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 import at.favre.lib.crypto.bcrypt.BCrypt;
 
+/**
+ * BCrypt hashing and verification on a dedicated CPU-sized thread pool.
+ *
+ * BCrypt is pure CPU: more hashes at once than cores only makes each one slower, and on
+ * request threads a login burst would stall unrelated API calls. Callers wait for their
+ * turn in a bounded queue; a full queue, or a wait past HASH_ACQUIRE_TIMEOUT_MS, throws
+ * RejectedExecutionException so the servlet can answer 503.
+ *
+ * The cost is HASH_COST if set, otherwise the highest cost whose hash takes no longer than
+ * HASH_TARGET_MS on this host, measured once at startup, but never below 12, the cost every
+ * hash used before calibration existed. Logins only ever raise a stored hash to that cost:
+ * timing noise between boots or hosts must not rewrite hashes back and forth, or weaken them.
+ */
 public class PasswordUtils {
+    private static final Log LOG = Log.get(PasswordUtils.class);
+
+    /** Saves a new hash for a user; see rehashIfNeeded. */
+    @FunctionalInterface
+    public interface HashStore {
+        void save(String newHash) throws SQLException;
+    }
+
+    private static final int THREADS = Settings.getInt("HASH_MAX_CONCURRENCY",
+        Runtime.getRuntime().availableProcessors());
+    private static final int QUEUE_CAPACITY = Settings.getInt("HASH_QUEUE_SIZE", 8 * THREADS);
+    private static final long ACQUIRE_TIMEOUT_NANOS = TimeUnit.MILLISECONDS.toNanos(
+        Settings.getInt("HASH_ACQUIRE_TIMEOUT_MS", 10000));
+    private static final int TARGET_MS = Settings.getInt("HASH_TARGET_MS", 250);
+
+    private static final int MIN_COST = 12;
+    private static final int MAX_COST = 16;
+    private static final int SAMPLE_COST = 8;
+
+    private static final LongAdder COMPLETED = new LongAdder();
+    private static final LongAdder REJECTED = new LongAdder();
+    private static final LongAdder EXPIRED = new LongAdder();
+    private static final LongAdder REHASHED = new LongAdder();
+    private static final LongAdder REHASH_SKIPPED = new LongAdder();
+    private static final LongAdder WAIT_NANOS = new LongAdder();
+    private static final LongAdder HASH_NANOS = new LongAdder();
+    private static final AtomicLong MAX_HASH_NANOS = new AtomicLong();
+
+    // Created on first use; the calibration runs once, before the first hash
+    private static final class Pool {
+        static final ThreadPoolExecutor EXECUTOR = executor();
+    }
+    private static final class Cost {
+        static final int VALUE = chooseCost();
+    }
+    private static volatile boolean started;
 
     public static String hashPassword(String plain) {
+        int cost = Cost.VALUE;
         // Convert to char[] before passing to hashToString
-        return BCrypt.withDefaults().hashToString(12, plain.toCharArray());
+        return call(() -> BCrypt.withDefaults().hashToString(cost, plain.toCharArray()));
     }
 
     public static boolean verifyPassword(String plain, String hashed) {
         // Convert plain password to char[] for verification
-        BCrypt.Result result = BCrypt.verifyer().verify(plain.toCharArray(), hashed);
-        return result.verified;
+        return call(() -> BCrypt.verifyer().verify(plain.toCharArray(), hashed).verified);
+    }
+
+    /**
+     * After a successful verify: if the stored hash was made at a lower cost, hashes the
+     * password again in the background and hands the result to store. A hash at a higher cost
+     * is kept as it is. Skipped when the hashing queue is busy; the user's next login tries again.
+     */
+    public static void rehashIfNeeded(String plain, String storedHash, HashStore store) {
+        if (costOf(storedHash) >= Cost.VALUE) {
+            return;
+        }
+        int cost = Cost.VALUE;
+        try {
+            submit(() -> {
+                try {
+                    store.save(BCrypt.withDefaults().hashToString(cost, plain.toCharArray()));
+                    REHASHED.increment();
+                } catch (SQLException e) {
+                    LOG.error("✗ Could not save rehashed password: {}", e.getMessage());
+                }
+                return null;
+            });
+        } catch (RejectedExecutionException e) {
+            // Logins come first when the queue is full; the hash stays as it is until the next one
+            REHASH_SKIPPED.increment();
+        }
+    }
+
+    /** Measures the host now instead of on the first login; returns the cost in use. */
+    public static int calibrate() {
+        return Cost.VALUE;
     }
-}
 
+    public static Map<String, Object> getHashingStats() {
+        long count = COMPLETED.sum();
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cost", Cost.VALUE);
+        stats.put("targetMs", TARGET_MS);
+        stats.put("threads", THREADS);
+        stats.put("active", started ? Pool.EXECUTOR.getActiveCount() : 0);
+        stats.put("queueDepth", started ? Pool.EXECUTOR.getQueue().size() : 0);
+        stats.put("queueCapacity", QUEUE_CAPACITY);
+        stats.put("completed", count);
+        stats.put("rejected", REJECTED.sum());
+        stats.put("expired", EXPIRED.sum());
+        stats.put("rehashed", REHASHED.sum());
+        stats.put("rehashSkipped", REHASH_SKIPPED.sum());
+        stats.put("waitAvgMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(WAIT_NANOS.sum() / count));
+        stats.put("hashAvgMicros", count == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(HASH_NANOS.sum() / count));
+        stats.put("hashMaxMicros", TimeUnit.NANOSECONDS.toMicros(MAX_HASH_NANOS.get()));
+        return stats;
+    }
+
+    /** Finishes queued work; called on undeploy before the pool is closed. */
+    public static void shutdown() {
+        if (!started) {
+            return;
+        }
+        Pool.EXECUTOR.shutdown();
+        try {
+            Pool.EXECUTOR.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Runs the work on the pool and waits for it; rethrows its unchecked exceptions as they are
+    private static <T> T call(Callable<T> work) {
+        Future<T> future = submit(work);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+            throw new RejectedExecutionException("Interrupted while waiting to hash", e);
+        }
+    }
+
+    private static <T> Future<T> submit(Callable<T> work) {
+        started = true;
+        long queuedAt = System.nanoTime();
+        try {
+            return Pool.EXECUTOR.submit(() -> {
+                long start = System.nanoTime();
+                if (start - queuedAt > ACQUIRE_TIMEOUT_NANOS) {
+                    // The caller would rather get a 503 now than a late answer
+                    EXPIRED.increment();
+                    throw new RejectedExecutionException("Too busy: waited too long to hash");
+                }
+                WAIT_NANOS.add(start - queuedAt);
+                try {
+                    return work.call();
+                } finally {
+                    long took = System.nanoTime() - start;
+                    HASH_NANOS.add(took);
+                    MAX_HASH_NANOS.accumulateAndGet(took, Math::max);
+                    COMPLETED.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            REJECTED.increment();
+            throw new RejectedExecutionException("Too busy: password hashing queue is full", e);
+        }
+    }
+
+    // "$2a$12$..." -> 12; -1 if the hash is not in that form
+    static int costOf(String hash) {
+        if (hash == null || hash.length() < 7 || hash.charAt(0) != '$' || hash.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int chooseCost() {
+        int fixed = Settings.getInt("HASH_COST", 0);
+        if (fixed > 0) {
+            if (fixed < MIN_COST) {
+                // Meant for load tests; stored hashes at a higher cost are still kept
+                LOG.warn("BCrypt cost {} (HASH_COST) is below the baseline {}; new passwords are weaker", fixed, MIN_COST);
+            } else {
+                LOG.info("BCrypt cost {} (HASH_COST)", fixed);
+            }
+            return fixed;
+        }
+        char[] sample = "calibration-password".toCharArray();
+        BCrypt.Hasher hasher = BCrypt.withDefaults();
+        // Warm up first: the early runs are interpreted and would overstate the cost
+        for (int i = 0; i < 5; i++) {
+            hasher.hash(SAMPLE_COST, sample);
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 3; i++) {
+            long start = System.nanoTime();
+            hasher.hash(SAMPLE_COST, sample);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        // Each cost step doubles the work
+        int cost = MIN_COST;
+        while (cost < MAX_COST && TimeUnit.NANOSECONDS.toMillis(best << (cost + 1 - SAMPLE_COST)) <= TARGET_MS) {
+            cost++;
+        }
+        LOG.info("✓ BCrypt cost {}: about {} ms per hash on this host (target {} ms)", cost,
+            TimeUnit.NANOSECONDS.toMillis(best << (cost - SAMPLE_COST)), TARGET_MS);
+        return cost;
+    }
+
+    private static ThreadPoolExecutor executor() {
+        AtomicInteger ids = new AtomicInteger();
+        return new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY), task -> {
+                Thread thread = new Thread(task, "password-hasher-" + ids.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.AbortPolicy());
+    }
+}
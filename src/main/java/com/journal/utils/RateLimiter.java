@@ -0,0 +1,259 @@
+package com.journal.utils;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sliding-window event counter per key (client IP, email) with a fixed memory footprint.
+ *
+ * Keys live in an open-addressed table of two long arrays allocated up front: a 64-bit
+ * seeded hash of the key, and the key's state packed into one long (window number, count
+ * in the previous window, count in the current one) so it can be updated with a single
+ * CAS. The estimate is the current count plus the previous one weighted by how much of
+ * the previous window still overlaps the sliding window.
+ *
+ * A key may sit in any of PROBES slots from its home slot, and lookups always check all of
+ * them, so freeing a slot never hides another key. When all of them are taken the slot
+ * with the oldest window is reused, which caps memory at maxKeys no matter how many
+ * addresses a scan comes from. Each call also clears a few expired slots further along.
+ *
+ * Updates that race on the same slot may occasionally lose a count; a rate limit does not
+ * need to be exact, only bounded.
+ *
+ * reserve/finish cover events that only count once their outcome is known, such as a login
+ * that may fail: attempts still under way are held against the limit too, so a burst of
+ * parallel attempts cannot all get in before the first ones are counted. They are kept in a
+ * map that only holds keys with attempts in progress.
+ */
+public final class RateLimiter {
+
+    private static final int PROBES = 8;
+    private static final int SWEEP_STEP = 4;
+    private static final int MAX_COUNT = 0xFFFF;
+
+    private final String name;
+    private final int limit;
+    private final long windowMs;
+    private final int mask;
+    private final long seed;
+    private final AtomicLongArray keys;
+    private final AtomicLongArray states;
+    private final AtomicInteger sweepCursor = new AtomicInteger();
+    private final ConcurrentHashMap<String, Integer> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder limited = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public RateLimiter(String name, int limit, long windowMs, int maxKeys) {
+        if (limit <= 0 || limit > MAX_COUNT || windowMs <= 0 || maxKeys <= 0) {
+            throw new IllegalArgumentException(name + ": limit, window and key cap must be positive");
+        }
+        this.name = name;
+        this.limit = limit;
+        this.windowMs = windowMs;
+        // Twice the key cap keeps probe sequences short
+        int capacity = Integer.highestOneBit(Math.max(PROBES, maxKeys) * 2 - 1) << 1;
+        this.mask = capacity - 1;
+        this.seed = new SecureRandom().nextLong();
+        this.keys = new AtomicLongArray(capacity);
+        this.states = new AtomicLongArray(capacity);
+    }
+
+    // Counts one event for key
+    private void record(String key, long now) {
+        recorded.increment();
+        long h = hash(key);
+        int slot = findOrClaim(h, now);
+        long window = now / windowMs;
+        while (true) {
+            long state = states.get(slot);
+            long next = add(state, window);
+            if (states.compareAndSet(slot, state, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Starts an attempt for key unless its counted events plus the attempts already under way
+     * reach the limit; check and reservation are atomic per key. Every attempt started must be
+     * ended with finish.
+     */
+    public boolean reserve(String key) {
+        long now = System.currentTimeMillis();
+        sweep(now);
+        boolean[] reserved = new boolean[1];
+        inFlight.compute(key, (k, running) -> {
+            int under = running == null ? 0 : running;
+            int slot = find(hash(k));
+            double counted = slot < 0 ? 0 : estimate(states.get(slot), now);
+            if (counted + under >= limit) {
+                return running;
+            }
+            reserved[0] = true;
+            return under + 1;
+        });
+        if (!reserved[0]) {
+            limited.increment();
+        }
+        return reserved[0];
+    }
+
+    /** Ends an attempt started with reserve, counting it as an event if counts is true. */
+    public void finish(String key, boolean counts) {
+        // Counted before the reservation goes, so the key is never briefly under its real total
+        if (counts) {
+            record(key, System.currentTimeMillis());
+        }
+        inFlight.computeIfPresent(key, (k, running) -> running > 1 ? running - 1 : null);
+    }
+
+    /** Forgets key, e.g. after a successful login. */
+    public void reset(String key) {
+        int slot = find(hash(key));
+        if (slot >= 0) {
+            states.set(slot, 0);
+        }
+    }
+
+    /** Milliseconds until the estimate for a limited key starts to fall, for Retry-After. */
+    public long retryAfterMs() {
+        return windowMs - System.currentTimeMillis() % windowMs;
+    }
+
+    /**
+     * Retry-After for a key that reserve turned down: retryAfterMs() if its counted events are at
+     * the limit, otherwise a second, as it is only waiting for attempts under way to finish.
+     */
+    public long retryAfterMs(String key) {
+        long now = System.currentTimeMillis();
+        int slot = find(hash(key));
+        return slot >= 0 && estimate(states.get(slot), now) >= limit ? retryAfterMs() : 1000;
+    }
+
+    public Map<String, Object> getStats() {
+        long now = System.currentTimeMillis();
+        int tracked = 0;
+        for (int i = 0; i <= mask; i++) {
+            if (keys.get(i) != 0 && !expired(states.get(i), now)) {
+                tracked++;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("name", name);
+        stats.put("limit", limit);
+        stats.put("windowMs", windowMs);
+        stats.put("capacity", mask + 1);
+        stats.put("trackedKeys", tracked);
+        stats.put("inFlightKeys", inFlight.size());
+        stats.put("recorded", recorded.sum());
+        stats.put("limited", limited.sum());
+        stats.put("evicted", evicted.sum());
+        return stats;
+    }
+
+    // Estimated events in the sliding window ending now
+    private double estimate(long state, long now) {
+        long window = now / windowMs;
+        long stateWindow = state >>> 32;
+        int previous = (int) (state >>> 16) & MAX_COUNT;
+        int current = (int) state & MAX_COUNT;
+        if (stateWindow == window - 1) {
+            // Everything recorded is in what is now the previous window
+            previous = current;
+            current = 0;
+        } else if (stateWindow != window) {
+            return 0;
+        }
+        double overlap = 1.0 - (double) (now % windowMs) / windowMs;
+        return current + previous * overlap;
+    }
+
+    // State after one more event in window, rolling the counts forward if the window moved
+    private static long add(long state, long window) {
+        long stateWindow = state >>> 32;
+        int previous = (int) (state >>> 16) & MAX_COUNT;
+        int current = (int) state & MAX_COUNT;
+        if (stateWindow != window) {
+            previous = stateWindow == window - 1 ? current : 0;
+            current = 0;
+        }
+        current = Math.min(MAX_COUNT, current + 1);
+        return (window << 32) | ((long) previous << 16) | current;
+    }
+
+    private boolean expired(long state, long now) {
+        return (state >>> 32) < now / windowMs - 1;
+    }
+
+    private int find(long h) {
+        int home = (int) h & mask;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+            if (keys.get(slot) == h) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private int findOrClaim(long h, long now) {
+        int found = find(h);
+        if (found >= 0) {
+            return found;
+        }
+        int home = (int) h & mask;
+        int oldest = home;
+        long oldestWindow = Long.MAX_VALUE;
+        for (int i = 0; i < PROBES; i++) {
+            int slot = (home + i) & mask;
+            long key = keys.get(slot);
+            long state = states.get(slot);
+            if ((key == 0 || expired(state, now)) && keys.compareAndSet(slot, key, h)) {
+                states.set(slot, 0);
+                return slot;
+            }
+            if ((state >>> 32) < oldestWindow) {
+                oldestWindow = state >>> 32;
+                oldest = slot;
+            }
+        }
+        // Every slot holds a live key: reuse the one seen least recently
+        evicted.increment();
+        keys.set(oldest, h);
+        states.set(oldest, 0);
+        return oldest;
+    }
+
+    // Frees a few expired slots per call so stale keys do not linger in the table
+    private void sweep(long now) {
+        int start = sweepCursor.getAndAdd(SWEEP_STEP);
+        for (int i = 0; i < SWEEP_STEP; i++) {
+            int slot = (start + i) & mask;
+            long key = keys.get(slot);
+            if (key != 0 && expired(states.get(slot), now)) {
+                keys.compareAndSet(slot, key, 0);
+            }
+        }
+    }
+
+    // Seeded 64-bit hash of the key's chars; 0 is reserved for empty slots
+    private long hash(String key) {
+        long h = seed;
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+}
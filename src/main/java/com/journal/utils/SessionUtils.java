@@ -6,9 +6,15 @@ import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 
 public class SessionUtils {
+
+    /** The user id AuthFilter took from a verified token when AUTH_MODE=token. */
+    public static final String USER_ID_ATTRIBUTE = "com.journal.userId";
     
     public static boolean validateSession(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
+        if (request.getAttribute(USER_ID_ATTRIBUTE) != null) {
+            return true;
+        }
         // Check for valid server-side session
         HttpSession session = request.getSession(false);
         if (session == null || session.getAttribute("userId") == null) {
@@ -21,7 +27,12 @@ public class SessionUtils {
     }
     
     public static Long getUserId(HttpServletRequest request) {
-        // First try to get from server-side session
+        Object verified = request.getAttribute(USER_ID_ATTRIBUTE);
+        if (verified != null) {
+            return (Long) verified;
+        }
+
+        // Then from the server-side session
         HttpSession session = request.getSession(false);
         if (session != null && session.getAttribute("userId") != null) {
             return (Long) session.getAttribute("userId");
@@ -0,0 +1,31 @@
+package com.journal.utils;
+
+/**
+ * Environment settings, documented in the README.
+ *
+ * Reading a setting has no side effects, so any class can use these helpers without loading
+ * DBConnection, which opens and migrates the database as soon as it loads.
+ */
+public final class Settings {
+    private static final Log LOG = Log.get(Settings.class);
+
+    private Settings() { }
+
+    public static String getString(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value == null || value.trim().isEmpty() ? defaultValue : value.trim();
+    }
+
+    public static int getInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOG.warn("Ignoring invalid {}={}, using {}", name, value, defaultValue);
+            return defaultValue;
+        }
+    }
+}
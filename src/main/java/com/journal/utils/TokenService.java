@@ -0,0 +1,354 @@
+package com.journal.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.journal.dao.DbExecutor;
+import com.journal.dao.RevokedTokenDAO;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Signed auth tokens for AUTH_MODE=token, so that any node can authenticate a request
+ * without a session lookup.
+ *
+ * A token is base64url(payload) "." base64url(HMAC-SHA256 of the payload). The payload holds
+ * a format version, the id of the signing key, the user id, the expiry and a random token id.
+ * The signature is compared in constant time before anything else in the payload is trusted.
+ * AUTH_TOKEN_KEYS lists "id:base64-secret" pairs: the first signs new tokens, and the others
+ * are still accepted, so a key can be rotated without logging everyone out.
+ *
+ * A token past half its lifetime is renewed with the same id, which gives the same idle
+ * timeout as a session. Logout revokes the id. Revocations are kept in memory and written to
+ * revoked_tokens, and every node reloads that table each AUTH_REVOCATION_REFRESH_MS.
+ */
+public final class TokenService {
+    private static final Log LOG = Log.get(TokenService.class);
+
+    /** What a verified token says. */
+    public static final class Claims {
+        private final long userId;
+        private final long tokenId;
+        private final long expiresAt;
+
+        Claims(long userId, long tokenId, long expiresAt) {
+            this.userId = userId;
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+        }
+
+        public long getUserId() { return userId; }
+        public long getTokenId() { return tokenId; }
+        /** Epoch millis. */
+        public long getExpiresAt() { return expiresAt; }
+    }
+
+    public static final String COOKIE_NAME = "MWTOKEN";
+
+    private static final boolean ENABLED = "token".equalsIgnoreCase(Settings.getString("AUTH_MODE", "session"));
+    private static final long TTL_MS = Settings.getInt("AUTH_TOKEN_TTL_MS", 30 * 60 * 1000);
+    private static final long REFRESH_MS = Settings.getInt("AUTH_REVOCATION_REFRESH_MS", 30 * 1000);
+
+    private static final byte VERSION = 1;
+    private static final int MAX_TOKEN_LENGTH = 256;
+    private static final int MIN_SECRET_BYTES = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final RevokedTokenDAO REVOCATIONS = new RevokedTokenDAO();
+
+    // Revoked token id -> the latest time a token with that id could still be valid
+    private static final ConcurrentHashMap<Long, Long> REVOKED = new ConcurrentHashMap<>();
+    private static final AtomicBoolean REFRESHING = new AtomicBoolean();
+    private static volatile long lastRefresh;
+
+    private static final LongAdder ISSUED = new LongAdder();
+    private static final LongAdder RENEWED = new LongAdder();
+    private static final LongAdder VERIFIED = new LongAdder();
+    private static final LongAdder MALFORMED = new LongAdder();
+    private static final LongAdder UNKNOWN_KEY = new LongAdder();
+    private static final LongAdder BAD_SIGNATURE = new LongAdder();
+    private static final LongAdder EXPIRED = new LongAdder();
+    private static final LongAdder REJECTED_REVOKED = new LongAdder();
+
+    // Read on first use, so session mode never looks at AUTH_TOKEN_KEYS
+    private static final class Keys {
+        static final KeyRing RING = KeyRing.load();
+    }
+
+    private TokenService() { }
+
+    /** True when AUTH_MODE=token: AuthFilter checks tokens instead of the HttpSession. */
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    /** Checks the keys and loads the revocation list; called at startup so bad keys fail the deploy. */
+    public static void start() {
+        if (!ENABLED) {
+            return;
+        }
+        KeyRing ring = Keys.RING;
+        reloadRevocations();
+        LOG.info("✓ Token auth: signing with key '{}', accepting {}, {} revoked tokens", ring.signingId, ring.macs.keySet(),
+            REVOKED.size());
+    }
+
+    /** A new token for userId, valid for AUTH_TOKEN_TTL_MS. */
+    public static String issue(long userId) {
+        ISSUED.increment();
+        return sign(userId, RANDOM.nextLong(), System.currentTimeMillis() + TTL_MS);
+    }
+
+    /** A later-expiring token with the same id once claims is past half its lifetime, else null. */
+    public static String renewIfDue(Claims claims) {
+        long now = System.currentTimeMillis();
+        if (claims.expiresAt - now > TTL_MS / 2) {
+            return null;
+        }
+        RENEWED.increment();
+        return sign(claims.userId, claims.tokenId, now + TTL_MS);
+    }
+
+    /** The claims of a genuine, unexpired, unrevoked token; null for anything else. */
+    public static Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (token.length() > MAX_TOKEN_LENGTH || dot <= 0 || dot != token.lastIndexOf('.')) {
+            MALFORMED.increment();
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            MALFORMED.increment();
+            return null;
+        }
+        if (payload.length < 2 || payload[0] != VERSION || payload.length != 2 + (payload[1] & 0xFF) + 24) {
+            MALFORMED.increment();
+            return null;
+        }
+        int keyIdLength = payload[1] & 0xFF;
+        Mac prototype = Keys.RING.macs.get(new String(payload, 2, keyIdLength, StandardCharsets.US_ASCII));
+        if (prototype == null) {
+            UNKNOWN_KEY.increment();
+            return null;
+        }
+        if (!MessageDigest.isEqual(copy(prototype).doFinal(payload), signature)) {
+            BAD_SIGNATURE.increment();
+            return null;
+        }
+
+        ByteBuffer fields = ByteBuffer.wrap(payload, 2 + keyIdLength, 24);
+        long userId = fields.getLong();
+        long expiresAt = fields.getLong();
+        long tokenId = fields.getLong();
+        long now = System.currentTimeMillis();
+        if (expiresAt <= now) {
+            EXPIRED.increment();
+            return null;
+        }
+        if (ENABLED) {
+            refreshRevocations(now);
+        }
+        if (REVOKED.containsKey(tokenId)) {
+            REJECTED_REVOKED.increment();
+            return null;
+        }
+        VERIFIED.increment();
+        return new Claims(userId, tokenId, expiresAt);
+    }
+
+    /**
+     * Rejects the token's id from now on, on this node at once and on the others after their
+     * next reload. Throws if the revocation could not be saved for the other nodes.
+     */
+    public static void revoke(Claims claims) throws SQLException {
+        // Renewals may have pushed a copy of this token past its expiry, but never past now + TTL
+        long until = System.currentTimeMillis() + TTL_MS;
+        REVOKED.put(claims.tokenId, until);
+        REVOCATIONS.revoke(claims.tokenId, until);
+    }
+
+    /** The token from an "Authorization: Bearer" header or the auth cookie, or null. */
+    public static String tokenOf(HttpServletRequest request) {
+        String header = request.getHeader("Authorization");
+        if (header != null && header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return header.substring(7).trim();
+        }
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE_NAME.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    public static void setCookie(HttpServletRequest request, HttpServletResponse response, String token) {
+        response.addCookie(cookie(request, token, (int) (TTL_MS / 1000)));
+    }
+
+    public static void clearCookie(HttpServletRequest request, HttpServletResponse response) {
+        response.addCookie(cookie(request, "", 0));
+    }
+
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("mode", ENABLED ? "token" : "session");
+        stats.put("ttlMs", TTL_MS);
+        stats.put("issued", ISSUED.sum());
+        stats.put("renewed", RENEWED.sum());
+        stats.put("verified", VERIFIED.sum());
+        stats.put("malformed", MALFORMED.sum());
+        stats.put("unknownKey", UNKNOWN_KEY.sum());
+        stats.put("badSignature", BAD_SIGNATURE.sum());
+        stats.put("expired", EXPIRED.sum());
+        stats.put("revoked", REJECTED_REVOKED.sum());
+        stats.put("revokedTracked", REVOKED.size());
+        return stats;
+    }
+
+    private static String sign(long userId, long tokenId, long expiresAt) {
+        KeyRing ring = Keys.RING;
+        byte[] keyId = ring.signingId.getBytes(StandardCharsets.US_ASCII);
+        byte[] payload = ByteBuffer.allocate(2 + keyId.length + 24)
+            .put(VERSION)
+            .put((byte) keyId.length)
+            .put(keyId)
+            .putLong(userId)
+            .putLong(expiresAt)
+            .putLong(tokenId)
+            .array();
+        byte[] signature = copy(ring.macs.get(ring.signingId)).doFinal(payload);
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(signature);
+    }
+
+    // Mac is not thread-safe; a clone of an initialized one skips the provider lookup and key setup
+    private static Mac copy(Mac prototype) {
+        try {
+            return (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(ALGORITHM + " provider does not support clone()", e);
+        }
+    }
+
+    // At most one reload in flight, run on a DB worker so no request waits for it
+    private static void refreshRevocations(long now) {
+        if (now - lastRefresh < REFRESH_MS || !REFRESHING.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            DbExecutor.submit(TokenService::reloadRevocations);
+        } catch (RejectedExecutionException e) {
+            // Busy; a later request tries again
+            REFRESHING.set(false);
+        }
+    }
+
+    private static void reloadRevocations() {
+        long now = System.currentTimeMillis();
+        try {
+            REVOKED.putAll(REVOCATIONS.findActive(now));
+            REVOKED.values().removeIf(until -> until <= now);
+            REVOCATIONS.deleteExpired(now);
+        } catch (SQLException e) {
+            LOG.error("✗ Could not reload revoked tokens: {}", e.getMessage());
+        } finally {
+            // Also after a failure, so a database outage does not turn into a reload per request
+            lastRefresh = now;
+            REFRESHING.set(false);
+        }
+    }
+
+    private static Cookie cookie(HttpServletRequest request, String value, int maxAgeSeconds) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(request.isSecure());
+        cookie.setPath(request.getContextPath().isEmpty() ? "/" : request.getContextPath());
+        cookie.setMaxAge(maxAgeSeconds);
+        cookie.setAttribute("SameSite", "Lax");
+        return cookie;
+    }
+
+    private static final class KeyRing {
+        final String signingId;
+        final Map<String, Mac> macs;
+
+        private KeyRing(String signingId, Map<String, Mac> macs) {
+            this.signingId = signingId;
+            this.macs = macs;
+        }
+
+        static KeyRing load() {
+            String setting = Settings.getString("AUTH_TOKEN_KEYS", "");
+            Map<String, Mac> macs = new LinkedHashMap<>();
+            if (setting.isEmpty()) {
+                byte[] secret = new byte[MIN_SECRET_BYTES];
+                RANDOM.nextBytes(secret);
+                macs.put("local", mac(secret));
+                LOG.warn("AUTH_TOKEN_KEYS is not set: signing tokens with a random key, so they do not"
+                    + " survive a restart and other nodes reject them");
+                return new KeyRing("local", macs);
+            }
+            for (String entry : setting.split(",")) {
+                int colon = entry.indexOf(':');
+                String id = colon < 0 ? "" : entry.substring(0, colon).trim();
+                if (!id.matches("[A-Za-z0-9_-]{1,32}")) {
+                    throw new IllegalStateException("AUTH_TOKEN_KEYS entries must look like id:base64-secret");
+                }
+                byte[] secret;
+                try {
+                    secret = Base64.getDecoder().decode(entry.substring(colon + 1).trim());
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalStateException("AUTH_TOKEN_KEYS secret for '" + id + "' is not base64");
+                }
+                if (secret.length < MIN_SECRET_BYTES) {
+                    throw new IllegalStateException("AUTH_TOKEN_KEYS secret for '" + id + "' is shorter than "
+                        + MIN_SECRET_BYTES + " bytes");
+                }
+                if (macs.put(id, mac(secret)) != null) {
+                    throw new IllegalStateException("AUTH_TOKEN_KEYS lists key '" + id + "' twice");
+                }
+            }
+            // The first key listed signs
+            return new KeyRing(macs.keySet().iterator().next(), macs);
+        }
+
+        private static Mac mac(byte[] secret) {
+            try {
+                Mac mac = Mac.getInstance(ALGORITHM);
+                mac.init(new SecretKeySpec(secret, ALGORITHM));
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            }
+        }
+    }
+}
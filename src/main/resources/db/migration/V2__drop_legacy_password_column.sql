@@ -0,0 +1,9 @@
+-- Very old databases stored the hash in a `password` column. Copy it across once and drop
+-- the legacy column (this used to be a blind UPDATE on every boot). Adding the column first
+-- lets the same script run on databases that never had it.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS password VARCHAR(255);
+
+UPDATE users SET password_hash = password WHERE password_hash IS NULL AND password IS NOT NULL;
+
+ALTER TABLE users DROP COLUMN password;
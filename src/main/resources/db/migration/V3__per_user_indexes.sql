@@ -0,0 +1,9 @@
+-- Every list and count query filters by user_id and orders by a date column.
+-- These composite indexes serve both the filter and the ORDER BY, and make the
+-- ON DELETE CASCADE from users an index lookup instead of a scan of each child table.
+
+CREATE INDEX IF NOT EXISTS idx_entries_user_date ON entries (user_id, entry_date);
+
+CREATE INDEX IF NOT EXISTS idx_goals_user_created ON goals (user_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_moods_user_logged ON moods (user_id, logged_at);
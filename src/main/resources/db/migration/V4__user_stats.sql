@@ -0,0 +1,43 @@
+-- Per-user counters behind /api/stats, kept up to date by EntryDAO and GoalDAO in the
+-- same transaction as the write. Gratitude notes ("[gratitude]" content prefix) are
+-- not journal entries and are left out, matching what StatsServlet used to compute.
+
+CREATE TABLE IF NOT EXISTS user_stats (
+  user_id BIGINT PRIMARY KEY,
+  entry_count INT NOT NULL DEFAULT 0,
+  goal_count INT NOT NULL DEFAULT 0,
+  completed_goal_count INT NOT NULL DEFAULT 0,
+  latest_entry_id BIGINT,
+  latest_mood VARCHAR(50),
+  FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS user_mood_counts (
+  user_id BIGINT,
+  mood VARCHAR(50),
+  mood_count INT NOT NULL DEFAULT 0,
+  PRIMARY KEY (user_id, mood),
+  FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+-- Used to find the new latest entry when the latest one is deleted
+CREATE INDEX IF NOT EXISTS idx_entries_user_created ON entries (user_id, created_at);
+
+INSERT INTO user_stats (user_id) SELECT id FROM users;
+
+UPDATE user_stats s SET
+  entry_count = (SELECT COUNT(*) FROM entries e
+                 WHERE e.user_id = s.user_id AND e.content NOT LIKE '[gratitude]%'),
+  goal_count = (SELECT COUNT(*) FROM goals g WHERE g.user_id = s.user_id),
+  completed_goal_count = (SELECT COUNT(*) FROM goals g WHERE g.user_id = s.user_id AND g.completed = TRUE),
+  latest_entry_id = (SELECT e.id FROM entries e
+                     WHERE e.user_id = s.user_id AND e.content NOT LIKE '[gratitude]%'
+                     ORDER BY e.created_at DESC, e.id DESC LIMIT 1);
+
+UPDATE user_stats s SET latest_mood = (SELECT e.mood FROM entries e WHERE e.id = s.latest_entry_id)
+WHERE latest_entry_id IS NOT NULL;
+
+INSERT INTO user_mood_counts (user_id, mood, mood_count)
+SELECT user_id, mood, COUNT(*) FROM entries
+WHERE mood IS NOT NULL AND content NOT LIKE '[gratitude]%'
+GROUP BY user_id, mood;
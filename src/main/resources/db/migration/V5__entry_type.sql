@@ -0,0 +1,12 @@
+-- Gratitude notes used to be entries whose content starts with "[gratitude]", which forced
+-- NOT LIKE scans over entry bodies. Give entries an explicit type, move existing notes over
+-- with the prefix stripped, and index (user_id, entry_type, entry_date) for typed listings.
+
+ALTER TABLE entries ADD COLUMN IF NOT EXISTS entry_type VARCHAR(20) DEFAULT 'journal' NOT NULL;
+
+UPDATE entries
+SET entry_type = 'gratitude',
+    content = TRIM(LEADING FROM SUBSTRING(content, 12))
+WHERE content LIKE '[gratitude]%';
+
+CREATE INDEX IF NOT EXISTS idx_entries_user_type_date ON entries (user_id, entry_type, entry_date);
@@ -0,0 +1,10 @@
+-- Signed auth tokens (AUTH_MODE=token) are checked without a lookup, so logging out records
+-- the token id here until the token would have expired anyway. Every node reloads the list
+-- periodically and keeps it in memory.
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+  token_id BIGINT PRIMARY KEY,
+  expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires ON revoked_tokens (expires_at);
@@ -0,0 +1,32 @@
+-- V5 moved "[gratitude]" notes to entry_type 'gratitude', but bulk imports kept writing the
+-- prefix into journal entries, which /api/stats then counted as journal entries. Recount
+-- the affected users without those notes, then move them over like V5 did. Only journal
+-- entries that still carry the prefix are touched, so running this again changes nothing.
+-- There is no DDL here, so the whole script commits together with its schema_version row.
+
+UPDATE user_stats s SET
+  entry_count = (SELECT COUNT(*) FROM entries e
+                 WHERE e.user_id = s.user_id AND e.entry_type = 'journal'
+                   AND e.content NOT LIKE '[gratitude]%'),
+  latest_entry_id = (SELECT e.id FROM entries e
+                     WHERE e.user_id = s.user_id AND e.entry_type = 'journal'
+                       AND e.content NOT LIKE '[gratitude]%'
+                     ORDER BY e.created_at DESC, e.id DESC LIMIT 1)
+WHERE s.user_id IN (SELECT user_id FROM entries WHERE entry_type = 'journal' AND content LIKE '[gratitude]%');
+
+UPDATE user_stats s SET latest_mood = (SELECT e.mood FROM entries e WHERE e.id = s.latest_entry_id)
+WHERE s.user_id IN (SELECT user_id FROM entries WHERE entry_type = 'journal' AND content LIKE '[gratitude]%');
+
+DELETE FROM user_mood_counts
+WHERE user_id IN (SELECT user_id FROM entries WHERE entry_type = 'journal' AND content LIKE '[gratitude]%');
+
+INSERT INTO user_mood_counts (user_id, mood, mood_count)
+SELECT user_id, mood, COUNT(*) FROM entries
+WHERE user_id IN (SELECT user_id FROM entries WHERE entry_type = 'journal' AND content LIKE '[gratitude]%')
+  AND mood IS NOT NULL AND entry_type = 'journal' AND content NOT LIKE '[gratitude]%'
+GROUP BY user_id, mood;
+
+UPDATE entries
+SET entry_type = 'gratitude',
+    content = TRIM(LEADING FROM SUBSTRING(content, 12))
+WHERE content LIKE '[gratitude]%' AND entry_type = 'journal';
@@ -135,7 +135,12 @@ document.getElementById('registerForm')?.addEventListener('submit', async e => {
 });
 
 // Logout function
-function logout() {
+async function logout() {
+    try {
+        await fetch('/api/logout', { method: 'POST' });
+    } catch (err) {
+        console.error('Logout error:', err);
+    }
     sessionStorage.clear();
     window.location.href = 'index.html';
 }
@@ -95,27 +95,14 @@ async function renderCalendar() {
 
 async function fetchMoodMap(year, monthIndexZeroBased) {
     try {
-        // Fetch all entries, then filter by month client-side for simplicity
-        const res = await fetch('/api/entries');
-        if (!res.ok) return {};
-        const entries = await res.json();
-        const month = monthIndexZeroBased + 1; // 1-12
+        // Server returns only this month's moods, grouped by YYYY-MM-DD (gratitude notes excluded)
+        const res = await fetch(`/api/entries/calendar?year=${year}&month=${monthIndexZeroBased + 1}`);
+        if (!res.ok) return { moodByDate: {}, moodsListByDate: {} };
+        const listMap = await res.json();
         const map = {}; // last mood for day (for simple usage)
-        const listMap = {}; // list of moods per day
-        entries.forEach(e => {
-            // Exclude gratitude-tagged notes from calendar mood map
-            const isGrat = String(e.content || '').trim().toLowerCase().startsWith('[gratitude]');
-            if (isGrat) return;
-            const d = normalizeEntryDate(e);
-            if (!d) return;
-            const parts = d.split('-').map(Number);
-            if (parts.length < 3) return;
-            const [y, m] = parts;
-            if (y === year && m === month) {
-                map[d] = e.mood;
-                if (!listMap[d]) listMap[d] = [];
-                listMap[d].push(e.mood);
-            }
+        Object.keys(listMap).forEach(d => {
+            const moods = listMap[d];
+            map[d] = moods[moods.length - 1];
         });
         return { moodByDate: map, moodsListByDate: listMap };
     } catch (err) {
@@ -167,17 +154,9 @@ function closeDrawer() {
 
 async function fetchEntriesByDate(dateStr) {
     try {
-        // Assuming an endpoint exists to fetch entries for a specific date
-        // If not, fetch all and filter
-        const res = await fetch('/api/entries');
+        const res = await fetch(`/api/entries?from=${dateStr}&to=${dateStr}&type=journal`);
         if (!res.ok) return [];
-        let entries = await res.json();
-        // Exclude gratitude-tagged notes from calendar day entries
-        entries = entries.filter(e => !String(e.content || '').trim().toLowerCase().startsWith('[gratitude]'));
-        const list = entries.filter(e => {
-            const d = normalizeEntryDate(e);
-            return d === dateStr;
-        });
+        const list = await res.json();
         // Optional: stable order by created_at if present
         list.sort((a,b) => {
             const ta = new Date(a.created_at || a.createdAt || a.createdAtMs || 0).getTime();
@@ -213,21 +192,3 @@ function getMoodEmoji(mood) {
         default: return '❓';
     }
 }
-
-function normalizeEntryDate(entry) {
-    const raw = entry.entryDate || entry.date || entry.entry_date || '';
-    if (!raw) return '';
-    // If already in YYYY-MM-DD
-    if (/^\d{4}-\d{2}-\d{2}/.test(raw)) {
-        return raw.substring(0, 10);
-    }
-    // Try to parse other formats
-    const d = new Date(raw);
-    if (isNaN(d.getTime())) return '';
-    const year = d.getFullYear();
-    const month = String(d.getMonth() + 1).padStart(2, '0');
-    const day = String(d.getDate()).padStart(2, '0');
-    return `${year}-${month}-${day}`;
-}
-
-
@@ -36,12 +36,10 @@ document.addEventListener("DOMContentLoaded", async () => {
 
 async function loadRecentEntries() {
     try {
-        const response = await fetch(`/api/entries`);
+        // Only the newest five journal entries are needed
+        const response = await fetch(`/api/entries?limit=5&type=journal`);
         if (response.ok) {
-            let entries = await response.json();
-            // Exclude gratitude-tagged notes from dashboard recent entries
-            entries = entries.filter(e => !String(e.content || '').trim().toLowerCase().startsWith('[gratitude]'));
-            const recentEntries = entries.slice(0, 5); // Get last 5 entries
+            const recentEntries = (await response.json()).entries;
             displayRecentEntries(recentEntries);
         }
     } catch (error) {
@@ -91,14 +91,21 @@ document.addEventListener("DOMContentLoaded", () => {
     loadUserEntries();
 });
 
-async function loadUserEntries() {
+const ENTRIES_PAGE_SIZE = 20;
+let nextEntriesCursor = null;
+
+// Loads the first page, or the next one when append is true
+async function loadUserEntries(append = false) {
     try {
-        const response = await fetch(`/api/entries`);
+        let url = `/api/entries?limit=${ENTRIES_PAGE_SIZE}&type=journal`;
+        if (append && nextEntriesCursor) {
+            url += `&cursor=${encodeURIComponent(nextEntriesCursor)}`;
+        }
+        const response = await fetch(url);
         if (response.ok) {
-            let entries = await response.json();
-            // Exclude gratitude-tagged notes from regular entries
-            entries = entries.filter(e => !String(e.content || '').trim().toLowerCase().startsWith('[gratitude]'));
-            displayEntries(entries);
+            const page = await response.json();
+            nextEntriesCursor = page.nextCursor;
+            displayEntries(page.entries, append);
         } else {
             console.error('Failed to load entries');
         }
@@ -107,13 +114,16 @@ async function loadUserEntries() {
     }
 }
 
-function displayEntries(entries) {
+function displayEntries(entries, append = false) {
     const entriesContainer = document.getElementById('entriesContainer');
     if (!entriesContainer) return;
 
-    entriesContainer.innerHTML = '';
+    if (!append) {
+        entriesContainer.innerHTML = '';
+    }
+    document.getElementById('loadMoreEntries')?.remove();
     
-    if (entries.length === 0) {
+    if (!append && entries.length === 0 && !nextEntriesCursor) {
         entriesContainer.innerHTML = '<p class="no-entries">No entries yet. Create your first entry above!</p>';
         return;
     }
@@ -134,6 +144,16 @@ function displayEntries(entries) {
         `;
         entriesContainer.appendChild(entryDiv);
     });
+
+    if (nextEntriesCursor) {
+        const loadMoreBtn = document.createElement('button');
+        loadMoreBtn.id = 'loadMoreEntries';
+        loadMoreBtn.type = 'button';
+        loadMoreBtn.className = 'cancel-btn load-more-btn';
+        loadMoreBtn.textContent = 'Load more entries';
+        loadMoreBtn.onclick = () => loadUserEntries(true);
+        entriesContainer.appendChild(loadMoreBtn);
+    }
 }
 
 function escapeHtml(text) {
@@ -47,22 +47,14 @@ function clamp(v, a, b){ return Math.max(a, Math.min(b, v)); }
 
 async function fetchGratitudes() {
     try {
-        // Reuse entries API: treat entries with mood 'peaceful' and short content as gratitude? Better: dedicated endpoint if exists.
-        // For now, look for entries tagged via a convention: content starting with "[gratitude]" or mood == 'peaceful'.
-        const res = await fetch('/api/entries');
+        const res = await fetch('/api/gratitude');
         if (!res.ok) return [];
-        const entries = await res.json();
-        // Only include entries explicitly tagged as gratitude to avoid overlap with normal journal entries
-        const notes = entries.filter(e => {
-            const text = (e.content || '').trim();
-            const isTag = text.toLowerCase().startsWith('[gratitude]');
-            return isTag;
-        }).map(e => ({
+        const notes = await res.json();
+        return notes.map(e => ({
             id: e.id,
-            date: (e.entryDate || e.date || '').substring(0,10),
-            text: (e.content || '').replace(/^\[gratitude\]\s*/i, '')
+            date: e.entryDate || '', // YYYY-MM-DD
+            text: e.content || ''
         }));
-        return notes;
     } catch (e) {
         console.error('Failed to fetch gratitude notes', e);
         return [];
@@ -72,7 +64,7 @@ async function fetchGratitudes() {
 function openGratDrawer(id, dateStr, text) {
     const drawer = document.getElementById('gratDrawer');
     const backdrop = document.getElementById('gratBackdrop');
-    const dateRow = `<div class="drawer-date"><span>📅</span><span>${new Date(dateStr).toLocaleDateString(undefined, { year: 'numeric', month: 'long', day: 'numeric' })}</span></div>`;
+    const dateRow = `<div class="drawer-date"><span>📅</span><span>${new Date(dateStr + 'T00:00:00').toLocaleDateString(undefined, { year: 'numeric', month: 'long', day: 'numeric' })}</span></div>`;
     const quote = `<div class="drawer-quote">"Gratitude turns what we have into enough."</div>`;
     const actions = `
         <div class="drawer-actions">
@@ -138,18 +130,9 @@ async function editGratitude(id, text) {
         if (!updatedText) return;
         
         try {
-            const today = new Date();
-            const y = today.getFullYear();
-            const m = String(today.getMonth()+1).padStart(2,'0');
-            const d = String(today.getDate()).padStart(2,'0');
-            const payload = { 
-                entryId: id.toString(), 
-                date: `${y}-${m}-${d}`, 
-                mood: 'peaceful', 
-                content: `[gratitude] ${updatedText}` 
-            };
+            const payload = { id: id.toString(), text: updatedText };
             
-            const res = await fetch('/api/entries', { 
+            const res = await fetch('/api/gratitude', { 
                 method: 'PUT', 
                 headers: {'Content-Type': 'application/json'}, 
                 body: JSON.stringify(payload) 
@@ -178,7 +161,7 @@ async function deleteGratitude(id) {
     closeGratDrawer();
     
     try {
-        const res = await fetch(`/api/entries?entryId=${id}`, { method: 'DELETE' });
+        const res = await fetch(`/api/gratitude?id=${id}`, { method: 'DELETE' });
         
         if (res.ok) {
             await renderBox();
@@ -215,14 +198,13 @@ function bindAddControls(){
         
         const text = (input.value || '').trim();
         if (!text) return;
-        // Persist using entries API with a gratitude tag
         const today = new Date();
         const y = today.getFullYear();
         const m = String(today.getMonth()+1).padStart(2,'0');
         const d = String(today.getDate()).padStart(2,'0');
-        const payload = { date: `${y}-${m}-${d}`, mood: 'peaceful', content: `[gratitude] ${text}` };
+        const payload = { date: `${y}-${m}-${d}`, text };
         try {
-            const res = await fetch('/api/entries', { method:'POST', headers:{'Content-Type':'application/json'}, body: JSON.stringify(payload) });
+            const res = await fetch('/api/gratitude', { method:'POST', headers:{'Content-Type':'application/json'}, body: JSON.stringify(payload) });
             if (res.ok){
                 input.value='';
                 // Re-render with a drop-in animation for last node
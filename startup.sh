@@ -35,6 +35,18 @@ echo "Exporting DB_PATH for Java application..."
 export DB_PATH="${DB_PATH:-/opt/render/project/data/mental_journal}"
 echo "DB_PATH is now: $DB_PATH"
 
+if [ "${TOMCAT_THREADS}" = "virtual" ]; then
+    echo ""
+    echo "Switching the HTTP connector to virtual threads..."
+    # One virtual thread per request instead of the 200-thread worker pool. Needs Java 21.
+    SERVER_XML=/usr/local/tomcat/conf/server.xml
+    if ! grep -q 'useVirtualThreads="true"' "$SERVER_XML"; then
+        sed -i 's#<Connector port="8080" protocol="HTTP/1.1"#<Connector port="8080" protocol="HTTP/1.1" useVirtualThreads="true"#' "$SERVER_XML"
+    fi
+    grep -q 'useVirtualThreads="true"' "$SERVER_XML" && echo "✓ Virtual threads enabled" \
+        || echo "✗ Connector not found in $SERVER_XML, staying on platform threads"
+fi
+
 echo ""
 echo "Starting Tomcat..."
 exec catalina.sh run